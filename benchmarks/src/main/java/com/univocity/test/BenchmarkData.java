@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+
+/**
+ * Generates the outputs used by the benchmarks: CSV-like rows that are always the same for a given size, so expected
+ * and produced outputs match. Large outputs are generated as they are read and never held in memory.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+final class BenchmarkData {
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * A {@link Reader} of exactly {@code size} characters of CSV rows, generated on demand.
+	 */
+	static final class CsvReader extends Reader {
+		private final long size;
+		private final String lineSeparator;
+		private final StringBuilder line = new StringBuilder();
+		private long position;
+		private int linePosition;
+		private int row;
+
+		CsvReader(long size, String lineSeparator) {
+			this.size = size;
+			this.lineSeparator = lineSeparator;
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) {
+			if (position >= size) {
+				return -1;
+			}
+			int count = 0;
+			while (count < length && position < size) {
+				if (linePosition == line.length()) {
+					line.setLength(0);
+					appendRow(line, row++, lineSeparator);
+					linePosition = 0;
+				}
+				int n = (int) Math.min(Math.min(length - count, line.length() - linePosition), size - position);
+				line.getChars(linePosition, linePosition + n, buffer, offset + count);
+				linePosition += n;
+				count += n;
+				position += n;
+			}
+			return count;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static void appendRow(StringBuilder out, int row, String lineSeparator) {
+		out.append("row_").append(row).append(',');
+		out.append(row * 31 % 1000).append('.').append(row % 100).append(',');
+		out.append("value \"").append(row % 97).append("\",");
+		out.append("2017-01-").append(row % 18 + 10);
+		out.append(lineSeparator);
+	}
+
+	/**
+	 * Generates CSV rows in memory.
+	 *
+	 * @param size          number of characters to generate
+	 * @param lineSeparator the line separator to use
+	 *
+	 * @return a {@code String} with exactly {@code size} characters.
+	 */
+	static String csv(int size, String lineSeparator) {
+		StringBuilder out = new StringBuilder(size);
+		char[] buffer = new char[8192];
+		CsvReader in = new CsvReader(size, lineSeparator);
+		int read;
+		while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+			out.append(buffer, 0, read);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Writes CSV rows, separated by {@code '\n'}, into the expected output file of a benchmark method, in UTF-8.
+	 *
+	 * @param expectedOutputsDir the directory of expected outputs
+	 * @param benchmarkClass     the class with the benchmark method
+	 * @param method             the benchmark method that produces the output
+	 * @param size               number of characters to write
+	 *
+	 * @return the file written.
+	 */
+	static File writeExpectedOutput(File expectedOutputsDir, Class<?> benchmarkClass, String method, long size) throws IOException {
+		File dir = new File(expectedOutputsDir, benchmarkClass.getSimpleName());
+		dir.mkdirs();
+		File file = new File(dir, method + ".txt");
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			CsvReader in = new CsvReader(size, "\n");
+			char[] buffer = new char[64 * 1024];
+			int read;
+			while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	static File createTempDir(String prefix) throws IOException {
+		File dir = File.createTempFile(prefix, "");
+		dir.delete();
+		if (!dir.mkdirs()) {
+			throw new IOException("Could not create directory " + dir.getAbsolutePath());
+		}
+		return dir;
+	}
+
+	static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Measures the normalization of line separators applied to outputs before they are compared (see
+ * {@link OutputTester#setNormalizeLineSeparators(boolean)}).
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CleanupBenchmark {
+
+	@Param({"1024", "1048576"})
+	public int size;
+
+	@Param({"LF", "CRLF", "CR"})
+	public String lineSeparator;
+
+	private String content;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		String separator = "LF".equals(lineSeparator) ? "\n" : "CRLF".equals(lineSeparator) ? "\r\n" : "\r";
+		content = BenchmarkData.csv(size, separator);
+	}
+
+	@Benchmark
+	public String cleanup() {
+		return LineSeparatorNormalizer.normalize(content);
+	}
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * Measures {@link ResultHelper#findExpectedResultFile(String, String, ResourceReader)} in directories with an
+ * increasing number of files, with the directory listing already cached and with the cache invalidated before each
+ * lookup.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindExpectedResultBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	public int files;
+
+	private final FileLocator locator = new FileLocator();
+	private File dir;
+	private String path;
+	private String method;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		dir = BenchmarkData.createTempDir("find");
+		for (int i = 0; i < files; i++) {
+			new File(dir, "method_" + i + ".txt").createNewFile();
+		}
+		path = dir.getAbsolutePath();
+		method = "method_" + (files / 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkData.delete(dir);
+	}
+
+	@Benchmark
+	public File cached() {
+		return ResultHelper.findExpectedResultFile(path, method, locator);
+	}
+
+	@Benchmark
+	public File uncached() {
+		ResourceCache.invalidate(dir);
+		return ResultHelper.findExpectedResultFile(path, method, locator);
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Measures {@link ResultHelper#getMethodWithArgs(String, Object[])}, which builds the name of the expected output of
+ * test methods that receive arguments (e.g. from data providers).
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MethodWithArgsBenchmark {
+
+	private final Object[] noArgs = new Object[0];
+	private final Object[] simpleArgs = new Object[]{1, "abc", null, 'x', 2.5};
+	private final Object[] complexArgs = new Object[]{
+			"a long argument, with: special/characters & more than 15 characters",
+			new Date(0L),
+			Arrays.asList("a", "b", "c"),
+			new int[]{1, 2, 3}
+	};
+
+	@Benchmark
+	public String noArgs() {
+		return ResultHelper.getMethodWithArgs("testMethod", noArgs);
+	}
+
+	@Benchmark
+	public String simpleArgs() {
+		return ResultHelper.getMethodWithArgs("testMethod", simpleArgs);
+	}
+
+	@Benchmark
+	public String complexArgs() {
+		return ResultHelper.getMethodWithArgs("testMethod", complexArgs);
+	}
+}
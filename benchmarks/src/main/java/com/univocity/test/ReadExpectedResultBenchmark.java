@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * Measures reading an expected output file through {@link ResultHelper#newReader(InputStream, String)} while an
+ * {@link OutputComparator} compares it against an identical output, as done when outputs are validated.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadExpectedResultBenchmark {
+
+	/**
+	 * File sizes, in characters: 1 KB, 1 MB, 64 MB and 500 MB.
+	 */
+	@Param({"1024", "1048576", "67108864", "524288000"})
+	public int size;
+
+	private File dir;
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		dir = BenchmarkData.createTempDir("read");
+		file = BenchmarkData.writeExpectedOutput(dir, ReadExpectedResultBenchmark.class, "read", size);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkData.delete(dir);
+	}
+
+	@Benchmark
+	public boolean read() throws IOException {
+		Reader expected = ResultHelper.newReader(new FileInputStream(file), "UTF-8");
+		try {
+			return new OutputComparator(expected, new BenchmarkData.CsvReader(size, "\n"), true).compare();
+		} finally {
+			expected.close();
+		}
+	}
+}
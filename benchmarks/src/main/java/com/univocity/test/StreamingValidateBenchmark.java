@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * Measures {@link OutputTester#validate(Reader, Object...)} end to end, with outputs that are generated as they are
+ * read, so outputs of any size can be compared without holding them in memory.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingValidateBenchmark {
+
+	/**
+	 * Output sizes, in characters: 1 KB, 1 MB, 64 MB and 1 GB.
+	 */
+	@Param({"1024", "1048576", "67108864", "1073741824"})
+	public long size;
+
+	private File expectedOutputsDir;
+	private OutputTester tester;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		expectedOutputsDir = BenchmarkData.createTempDir("validate");
+		BenchmarkData.writeExpectedOutput(expectedOutputsDir, StreamingValidateBenchmark.class, "validateReader", size);
+		tester = new OutputTester(StreamingValidateBenchmark.class, expectedOutputsDir.getAbsolutePath(), "UTF-8");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkData.delete(expectedOutputsDir);
+	}
+
+	@Benchmark
+	public void validateReader() {
+		tester.validate(new BenchmarkData.CsvReader(size, "\n"));
+	}
+}
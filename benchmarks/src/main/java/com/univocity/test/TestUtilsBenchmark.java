@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Measures {@link TestUtils#assertEquals(Object[], Object[])} on nested arrays and
+ * {@link TestUtils#assertLinesAreEqual(Object[][], Object[][])} on large arrays of rows, with equal contents.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestUtilsBenchmark {
+
+	/**
+	 * Number of rows of the arrays compared. Nested arrays have three levels and about ten times as many elements.
+	 */
+	@Param({"1000", "100000"})
+	public int rows;
+
+	private Object[] expectedNested;
+	private Object[] resultNested;
+	private String[][] expectedLines;
+	private String[][] resultLines;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		int width = (int) Math.round(Math.cbrt(rows * 10));
+		expectedNested = nested(3, width, 0);
+		resultNested = nested(3, width, 0);
+		expectedLines = lines(rows, 10);
+		resultLines = lines(rows, 10);
+	}
+
+	private static Object[] nested(int depth, int width, int offset) {
+		Object[] out = new Object[width];
+		for (int i = 0; i < width; i++) {
+			if (depth == 1) {
+				out[i] = (i % 5 == 0) ? null : String.valueOf(offset + i);
+			} else {
+				out[i] = nested(depth - 1, width, (offset + i) * width);
+			}
+		}
+		return out;
+	}
+
+	private static String[][] lines(int rows, int columns) {
+		String[][] out = new String[rows][columns];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < columns; j++) {
+				out[i][j] = (j == 3) ? null : "value " + i + '_' + j;
+			}
+		}
+		return out;
+	}
+
+	@Benchmark
+	public void assertEqualsNested() {
+		TestUtils.assertEquals(expectedNested, resultNested);
+	}
+
+	@Benchmark
+	public void assertLinesAreEqual() {
+		TestUtils.assertLinesAreEqual(resultLines, expectedLines);
+	}
+}
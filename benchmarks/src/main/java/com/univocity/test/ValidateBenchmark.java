@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * Measures {@link OutputTester#validate(CharSequence, Object...)} end to end: resolution of the test method, lookup
+ * and reading of the expected output and comparison against an identical output held in memory.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidateBenchmark {
+
+	/**
+	 * Output sizes, in characters: 1 KB, 1 MB and 64 MB. See {@link StreamingValidateBenchmark} for larger outputs.
+	 */
+	@Param({"1024", "1048576", "67108864"})
+	public int size;
+
+	private File expectedOutputsDir;
+	private OutputTester tester;
+	private String output;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		expectedOutputsDir = BenchmarkData.createTempDir("validate");
+		BenchmarkData.writeExpectedOutput(expectedOutputsDir, ValidateBenchmark.class, "validateString", size);
+		output = BenchmarkData.csv(size, "\n");
+		tester = new OutputTester(ValidateBenchmark.class, expectedOutputsDir.getAbsolutePath(), "UTF-8");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkData.delete(expectedOutputsDir);
+	}
+
+	@Benchmark
+	public void validateString() {
+		tester.validate(output);
+	}
+}
@@ -17,37 +17,19 @@ package com.univocity.test;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
  */
 abstract class AbstractFileLocator<T> implements ResourceReader<T> {
 
-	private static final boolean CASE_INSENSITIVE;
-	private static final boolean CASE_SENSITIVE;
+	/**
+	 * Used when case sensitivity can't be detected: the case sensitivity of file names compared by the platform.
+	 */
+	private static final boolean DEFAULT_CASE_SENSITIVE = !new File("a").equals(new File("A"));
 
-	static {
-		String userDir = System.getProperty("user.dir");
-		File tmp = null;
-		if (userDir == null || userDir.trim().isEmpty()) {
-			try {
-				tmp = File.createTempFile("abc", ".tmp");
-				userDir = tmp.getAbsolutePath();
-			} catch (Exception e) {
-				userDir = "abc";
-			}
-		}
-		File original = new File(userDir);
-		File upper = new File(userDir.toUpperCase());
-		File lower = new File(userDir.toLowerCase());
-
-		CASE_INSENSITIVE = original.exists() && upper.exists() && lower.exists();
-		CASE_SENSITIVE = !CASE_INSENSITIVE;
-
-		if (tmp != null) {
-			tmp.delete();
-		}
-	}
+	private static final ConcurrentMap<String, Boolean> caseSensitiveDirectories = new ConcurrentHashMap<String, Boolean>();
 
 	@Override
 	public final T open(String path) {
@@ -77,7 +59,73 @@ abstract class AbstractFileLocator<T> implements ResourceReader<T> {
 	}
 
 	@Override
+	public ResourceCache getCache() {
+		return ResourceCache.FILESYSTEM;
+	}
+
+	/**
+	 * Indicates whether file names are case sensitive in the working directory.
+	 *
+	 * @return {@code true} if file names in the working directory are case sensitive, otherwise {@code false}.
+	 */
 	public boolean isCaseSensitive() {
-		return CASE_SENSITIVE;
+		return isCaseSensitive(System.getProperty("user.dir", "."));
+	}
+
+	/**
+	 * Indicates whether file names are case sensitive in a directory. Each existing directory is probed only once, as
+	 * directories may be in different filesystems with different rules. A directory that does not exist yet is probed
+	 * through its nearest existing parent, on every call, until it is created.
+	 *
+	 * @param path path to a directory
+	 *
+	 * @return {@code true} if file names in the directory are case sensitive, otherwise {@code false}.
+	 */
+	@Override
+	public boolean isCaseSensitive(String path) {
+		String directory = ResourceCache.toAbsolutePath(new File(path));
+		Boolean caseSensitive = caseSensitiveDirectories.get(directory);
+		if (caseSensitive == null) {
+			File file = new File(directory);
+			caseSensitive = probeCaseSensitivity(file);
+			if (file.exists()) {
+				caseSensitiveDirectories.put(directory, caseSensitive);
+			}
+		}
+		return caseSensitive;
+	}
+
+	/**
+	 * Looks up the nearest existing element of a path whose name has letters, with the case of its letters swapped.
+	 * The filesystem is case insensitive if the element is found under the swapped name, and no other file has that
+	 * name.
+	 */
+	private static boolean probeCaseSensitivity(File file) {
+		for (; file != null; file = file.getParentFile()) {
+			if (!file.exists()) {
+				continue;
+			}
+			File parent = file.getParentFile();
+			String name = file.getName();
+			String swapped = swapCase(name);
+			if (parent == null || swapped.equals(name)) {
+				continue;
+			}
+			if (!new File(parent, swapped).exists()) {
+				return true;
+			}
+			String[] names = parent.list();
+			return names != null && Arrays.asList(names).contains(swapped);
+		}
+		return DEFAULT_CASE_SENSITIVE;
+	}
+
+	private static String swapCase(String name) {
+		char[] chars = name.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			char ch = chars[i];
+			chars[i] = Character.isUpperCase(ch) ? Character.toLowerCase(ch) : Character.toUpperCase(ch);
+		}
+		return new String(chars);
 	}
 }
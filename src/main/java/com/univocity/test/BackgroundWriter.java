@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Runs file writes in background daemon threads. Writes submitted with the same key are always handled by the same
+ * thread, in the order they were submitted, so writes of the same file never overlap.
+ *
+ * The number of pending writes is bounded: submitting a write blocks while the queue is full.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class BackgroundWriter {
+
+	private final ExecutorService[] threads;
+	private final Semaphore capacity;
+
+	private final Object lock = new Object();
+	private int pending;
+
+	/**
+	 * Creates a pool of background writers.
+	 *
+	 * @param name       prefix of the names of the threads created
+	 * @param maxPending maximum number of writes waiting to be executed before {@link #submit(String, Runnable)} blocks.
+	 */
+	BackgroundWriter(final String name, int maxPending) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		ThreadFactory threadFactory = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name + "-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+
+		threads = new ExecutorService[Runtime.getRuntime().availableProcessors()];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = Executors.newSingleThreadExecutor(threadFactory);
+		}
+		capacity = new Semaphore(maxPending);
+	}
+
+	/**
+	 * Queues a write, blocking while too many writes are pending.
+	 *
+	 * @param key  identifies the file to be written
+	 * @param task the write to execute. Any exception thrown by it is discarded, so it must handle its own errors.
+	 */
+	void submit(String key, final Runnable task) {
+		capacity.acquireUninterruptibly();
+		synchronized (lock) {
+			pending++;
+		}
+
+		ExecutorService thread = threads[(key.hashCode() & Integer.MAX_VALUE) % threads.length];
+		try {
+			thread.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} finally {
+						completed();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			completed();
+			throw e;
+		}
+	}
+
+	private void completed() {
+		capacity.release();
+		synchronized (lock) {
+			pending--;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until all writes submitted so far are completed.
+	 */
+	void awaitPending() {
+		boolean interrupted = false;
+		synchronized (lock) {
+			while (pending > 0) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
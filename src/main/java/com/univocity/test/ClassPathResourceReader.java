@@ -16,6 +16,7 @@
 package com.univocity.test;
 
 import java.io.*;
+import java.net.*;
 import java.util.*;
 
 /**
@@ -23,14 +24,111 @@ import java.util.*;
  */
 abstract class ClassPathResourceReader implements ResourceReader<InputStream> {
 
+	private ResourceCache cache;
+
 	@Override
-	public boolean isCaseSensitive() {
+	public boolean isCaseSensitive(String path) {
 		return true;
 	}
 
+	/**
+	 * Returns the class loader used by this reader to load resources.
+	 *
+	 * @return the class loader that provides the resources.
+	 */
+	protected abstract ClassLoader getClassLoader();
+
+	/**
+	 * Returns a class whose jar file, if any, is expected to contain the resources. The jar is listed through its
+	 * index even if it has no entries for directories, in which case the class loader can't find the directories.
+	 *
+	 * @return a class packaged along with the resources.
+	 */
+	protected abstract Class<?> getReferenceClass();
+
+	@Override
+	public ResourceCache getCache() {
+		if (cache == null) {
+			cache = ResourceCache.of(getClassLoader());
+		}
+		return cache;
+	}
+
+	/**
+	 * Opens a classpath resource that is a plain file in the filesystem with a {@link FileInputStream}, so its
+	 * contents can be read through its file channel.
+	 *
+	 * @param resource the URL of the resource, possibly {@code null}
+	 *
+	 * @return an input stream of the file, or {@code null} if the resource doesn't exist or isn't a plain file.
+	 */
+	static InputStream openFile(URL resource) {
+		if (resource != null && "file".equals(resource.getProtocol())) {
+			try {
+				File file = new File(resource.toURI());
+				if (file.isFile()) {
+					return new FileInputStream(file);
+				}
+			} catch (Exception e) {
+				//not a regular file, must be read as a stream.
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Opens a classpath resource directly from the filesystem when possible: plain files are opened with a
+	 * {@link FileInputStream} and entries of jar files are opened from their {@link JarIndex}.
+	 *
+	 * @param resource the URL of the resource, possibly {@code null}
+	 *
+	 * @return an input stream of the resource, or {@code null} if the resource doesn't exist or can't be opened
+	 * directly.
+	 */
+	static InputStream openResource(URL resource) {
+		InputStream file = openFile(resource);
+		if (file == null) {
+			JarIndex jar = JarIndex.of(resource);
+			if (jar != null) {
+				return jar.open(JarIndex.getEntryName(resource));
+			}
+		}
+		return file;
+	}
+
+	private static void addJar(Set<JarIndex> jars, URL resource) {
+		JarIndex jar = JarIndex.of(resource);
+		if (jar != null) {
+			jars.add(jar);
+		}
+	}
+
 	public Set<String> listResourcesUnder(String path) {
 		Set<String> resources = new TreeSet<String>();
 
+		//directories in jars can't be listed by reading them, so their names come from the index of each jar.
+		Set<JarIndex> jars = new LinkedHashSet<JarIndex>();
+		Class<?> referenceClass = getReferenceClass();
+		if (referenceClass != null) {
+			//jars built without directory entries are only found from a resource they are known to contain.
+			String className = referenceClass.getName();
+			addJar(jars, referenceClass.getResource(className.substring(className.lastIndexOf('.') + 1) + ".class"));
+		}
+		ClassLoader classLoader = getClassLoader();
+		if (classLoader != null) {
+			try {
+				Enumeration<URL> urls = classLoader.getResources(path);
+				while (urls.hasMoreElements()) {
+					addJar(jars, urls.nextElement());
+				}
+			} catch (IOException e) {
+				//ignore
+			}
+		}
+		for (JarIndex jar : jars) {
+			resources.addAll(jar.list(path));
+		}
+
 		InputStream in = null;
 		BufferedReader br = null;
 		try {
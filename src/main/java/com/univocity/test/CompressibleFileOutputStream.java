@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+
+/**
+ * Writes content into a file that is compressed with GZIP if the content is larger than a given threshold. Content
+ * is kept in memory until the threshold is exceeded, at which point the compressed file is created with the same name
+ * followed by {@code .gz}. If the threshold is never exceeded, the content is written uncompressed when this stream
+ * is closed.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class CompressibleFileOutputStream extends OutputStream {
+
+	private final File file;
+	private final long threshold;
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private OutputStream out;
+	private File target;
+
+	/**
+	 * Creates a stream that writes into the given file.
+	 *
+	 * @param file      the file to write, if its content doesn't exceed the threshold
+	 * @param threshold number of bytes above which the file is compressed. If {@code 0}, the file is always compressed.
+	 */
+	CompressibleFileOutputStream(File file, long threshold) {
+		this.file = file;
+		this.threshold = threshold;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		if (out == null) {
+			if (pending.size() + (long) length <= threshold) {
+				pending.write(bytes, offset, length);
+				return;
+			}
+			compress();
+		}
+		out.write(bytes, offset, length);
+	}
+
+	private void compress() throws IOException {
+		target = new File(file.getPath() + ResultHelper.COMPRESSED_EXTENSION);
+		out = ResultHelper.compress(new FileOutputStream(target));
+		pending.writeTo(out);
+		pending = null;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (out != null) {
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (out == null) {
+			if (threshold == 0) {
+				compress();
+			} else {
+				target = file;
+				out = new FileOutputStream(file);
+				pending.writeTo(out);
+				pending = null;
+			}
+		}
+		out.close();
+	}
+
+	/**
+	 * Returns the file written by this stream. Available once the content exceeds the threshold, or after the stream
+	 * is closed.
+	 *
+	 * @return the file written, which is compressed if its name ends with {@code .gz}, or {@code null} if no file was
+	 * created yet.
+	 */
+	File getFile() {
+		return target;
+	}
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * An {@link OutputStream} that decodes the bytes written to it and forwards the resulting characters to a
+ * {@link Writer}. Bytes are decoded as they are written: only the bytes of an incomplete character are held until
+ * more bytes are written or the stream is closed.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class DecodingOutputStream extends OutputStream {
+
+	private final Writer out;
+	private final CharsetDecoder decoder;
+	private final ByteBuffer bytes = ByteBuffer.allocate(OutputBuffer.CHUNK_SIZE);
+	private final CharBuffer chars = CharBuffer.allocate(OutputBuffer.CHUNK_SIZE);
+
+	/**
+	 * Creates a stream that decodes the bytes written to it.
+	 *
+	 * @param out     the writer that receives the decoded characters
+	 * @param charset the charset used to decode the bytes. Malformed input is replaced with the charset's replacement character.
+	 */
+	DecodingOutputStream(Writer out, Charset charset) {
+		this.out = out;
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		bytes.put((byte) b);
+		decode(false);
+	}
+
+	@Override
+	public void write(byte[] buffer, int offset, int length) throws IOException {
+		while (length > 0) {
+			int count = Math.min(length, bytes.remaining());
+			bytes.put(buffer, offset, count);
+			offset += count;
+			length -= count;
+			decode(false);
+		}
+	}
+
+	private void decode(boolean endOfInput) throws IOException {
+		bytes.flip();
+		while (true) {
+			CoderResult result = decoder.decode(bytes, chars, endOfInput);
+			writeChars();
+			if (result.isUnderflow()) {
+				break;
+			}
+		}
+		bytes.compact();
+	}
+
+	private void writeChars() throws IOException {
+		if (chars.position() > 0) {
+			out.write(chars.array(), chars.arrayOffset(), chars.position());
+			chars.clear();
+		}
+	}
+
+	/**
+	 * Decodes all complete characters written so far.
+	 */
+	@Override
+	public void flush() throws IOException {
+		decode(false);
+		out.flush();
+	}
+
+	/**
+	 * Decodes the remaining bytes, replacing an incomplete character at the end of the input, and resets the
+	 * stream so it can be used to write another output.
+	 */
+	@Override
+	public void close() throws IOException {
+		decode(true);
+		decoder.flush(chars);
+		writeChars();
+		decoder.reset();
+		out.flush();
+	}
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A manifest of all expected output files in a directory of expected outputs, generated when the project is built.
+ * It maps each test class directory and file name to the size of the file and the digest of its (uncompressed)
+ * contents.
+ *
+ * When the manifest is found at the root of the expected outputs directory, the {@link OutputTester} uses it to
+ * locate expected outputs without listing any directory, and to obtain their digests without reading the
+ * {@code .sha256} files. Expected outputs not in the manifest, or whose size changed since the manifest was generated,
+ * are located as usual.
+ *
+ * To generate the manifest, run this class with the path to the expected outputs directory as its argument, e.g.
+ * after test resources are copied to {@code target/test-classes}:
+ *
+ * <pre>{@code java -cp univocity-output-tester.jar com.univocity.test.ExpectedOutputManifest target/test-classes/expectedOutputs}</pre>
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public final class ExpectedOutputManifest {
+
+	/**
+	 * Name of the manifest file, stored at the root of the expected outputs directory.
+	 */
+	public static final String FILE_NAME = "expected-outputs.manifest";
+
+	private static final String HEADER = "# class/file\tsize\tsha256";
+
+	/**
+	 * An expected output file listed in the manifest.
+	 */
+	static final class Entry {
+		final String name;
+		final long size;
+		final String digest;
+
+		private Entry(String name, long size, String digest) {
+			this.name = name;
+			this.size = size;
+			this.digest = digest;
+		}
+	}
+
+	private final ConcurrentMap<String, Map<String, Entry>> directories = new ConcurrentHashMap<String, Map<String, Entry>>();
+	private final ConcurrentMap<String, ResultNameIndex> names = new ConcurrentHashMap<String, ResultNameIndex>();
+
+	ExpectedOutputManifest() {
+	}
+
+	/**
+	 * Generates the manifest of an expected outputs directory.
+	 *
+	 * @param args the path to the expected outputs directory.
+	 *
+	 * @throws IOException if the expected outputs can't be read or the manifest can't be written.
+	 */
+	public static void main(String... args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java " + ExpectedOutputManifest.class.getName() + " <expected outputs directory>");
+			System.exit(1);
+		}
+		File manifest = write(new File(args[0]));
+		System.out.println("Expected outputs manifest written to " + manifest.getAbsolutePath());
+	}
+
+	/**
+	 * Generates the manifest of an expected outputs directory, listing every file under each test class directory.
+	 * Digests ({@code .sha256} files) are not listed.
+	 *
+	 * @param expectedOutputsDir the directory of expected outputs
+	 *
+	 * @return the manifest file, written at the root of the given directory.
+	 *
+	 * @throws IOException if the expected outputs can't be read or the manifest can't be written.
+	 */
+	public static File write(File expectedOutputsDir) throws IOException {
+		File[] classDirs = expectedOutputsDir.listFiles();
+		if (classDirs == null) {
+			throw new FileNotFoundException("Directory of expected outputs not found: " + expectedOutputsDir.getAbsolutePath());
+		}
+		Arrays.sort(classDirs);
+
+		File manifest = new File(expectedOutputsDir, FILE_NAME);
+		Writer out = new OutputStreamWriter(new FileOutputStream(manifest), "UTF-8");
+		try {
+			out.write(HEADER);
+			out.write('\n');
+			for (File classDir : classDirs) {
+				File[] files = classDir.listFiles();
+				if (files == null) {
+					continue;
+				}
+				Arrays.sort(files);
+				for (File file : files) {
+					if (!file.isFile() || file.getName().endsWith(OutputDigest.EXTENSION)) {
+						continue;
+					}
+					out.write(classDir.getName());
+					out.write('/');
+					out.write(file.getName());
+					out.write('\t');
+					out.write(String.valueOf(file.length()));
+					out.write('\t');
+					out.write(digest(file));
+					out.write('\n');
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return manifest;
+	}
+
+	private static String digest(File file) throws IOException {
+		OutputDigest digest = new OutputDigest(null);
+		InputStream in = ResultHelper.openFile(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return digest.getDigest();
+	}
+
+	/**
+	 * Reads a manifest written by {@link #write(File)}.
+	 *
+	 * @param input the contents of the manifest file. Closed after reading.
+	 *
+	 * @return the manifest read.
+	 *
+	 * @throws IOException if the manifest can't be read.
+	 */
+	static ExpectedOutputManifest read(InputStream input) throws IOException {
+		ExpectedOutputManifest manifest = new ExpectedOutputManifest();
+		BufferedReader in = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.length() == 0 || line.charAt(0) == '#') {
+					continue;
+				}
+				int slash = line.indexOf('/');
+				int sizeStart = line.indexOf('\t', slash + 1);
+				int digestStart = line.indexOf('\t', sizeStart + 1);
+				if (slash == -1 || sizeStart == -1 || digestStart == -1) {
+					throw new IOException("Invalid line in expected outputs manifest: " + line);
+				}
+				String directory = line.substring(0, slash);
+				Map<String, Entry> entries = manifest.directories.get(directory);
+				if (entries == null) {
+					entries = new HashMap<String, Entry>();
+					manifest.directories.put(directory, entries);
+				}
+				String name = line.substring(slash + 1, sizeStart);
+				try {
+					entries.put(name, new Entry(name, Long.parseLong(line.substring(sizeStart + 1, digestStart)), line.substring(digestStart + 1)));
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid line in expected outputs manifest: " + line);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		for (Map.Entry<String, Map<String, Entry>> directory : manifest.directories.entrySet()) {
+			manifest.names.put(directory.getKey(), new ResultNameIndex(directory.getValue().keySet()));
+		}
+		return manifest;
+	}
+
+	/**
+	 * Indicates whether the manifest lists the expected outputs of a test class.
+	 *
+	 * @param className name of the test class directory
+	 *
+	 * @return {@code true} if the test class directory is in the manifest.
+	 */
+	boolean contains(String className) {
+		return names.containsKey(className);
+	}
+
+	/**
+	 * Finds the expected output of a test method, using the same rules applied to the files listed in a directory.
+	 *
+	 * @param className     name of the test class directory
+	 * @param testMethod    name of the test method
+	 * @param caseSensitive whether file names are case sensitive
+	 *
+	 * @return the expected output file of the test method, or {@code null} if it isn't in the manifest.
+	 */
+	Entry find(String className, String testMethod, boolean caseSensitive) {
+		Map<String, Entry> entries = directories.get(className);
+		ResultNameIndex index = names.get(className);
+		if (entries == null || index == null) {
+			return null;
+		}
+		String name = index.find(testMethod, caseSensitive);
+		return name == null ? null : entries.get(name);
+	}
+
+	/**
+	 * Stops using the entries of a test class directory, e.g. after its expected outputs are modified.
+	 *
+	 * @param className name of the test class directory
+	 */
+	void discard(String className) {
+		directories.remove(className);
+		names.remove(className);
+	}
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+
+/**
+ * Writes expected outputs in background threads, using a {@link BackgroundWriter}. Updates of the same expected
+ * output are always handled by the same thread, in the order they were submitted. Expected outputs whose content
+ * doesn't change are not rewritten. Pending updates are written before the JVM exits.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class ExpectedOutputUpdates {
+
+	private static final int MAX_PENDING = 256;
+
+	private static final int FAILED = -1;
+	private static final int UNCHANGED = 0;
+	private static final int CREATED = 1;
+	private static final int MODIFIED = 2;
+
+	private static ExpectedOutputUpdates instance;
+
+	private final BackgroundWriter writer = new BackgroundWriter("expected-output-writer", MAX_PENDING);
+
+	private final Object lock = new Object();
+	private int created;
+	private int modified;
+	private int unchanged;
+	private int failed;
+
+	private ExpectedOutputUpdates() {
+	}
+
+	/**
+	 * Returns the instance shared by all {@link OutputTester}s, creating it if needed.
+	 */
+	static synchronized ExpectedOutputUpdates getInstance() {
+		if (instance == null) {
+			instance = new ExpectedOutputUpdates();
+			Runtime.getRuntime().addShutdownHook(new Thread("expected-output-updates-flush") {
+				@Override
+				public void run() {
+					try {
+						instance.flush();
+					} catch (IllegalStateException e) {
+						System.out.println(">> " + e.getMessage());
+					}
+				}
+			});
+		}
+		return instance;
+	}
+
+	/**
+	 * Waits for all pending updates, if any were ever submitted.
+	 *
+	 * @return the number of files created or modified since the last flush.
+	 */
+	static int flushAll() {
+		ExpectedOutputUpdates updates;
+		synchronized (ExpectedOutputUpdates.class) {
+			updates = instance;
+		}
+		return updates == null ? 0 : updates.flush();
+	}
+
+	/**
+	 * Queues the update of an expected output, blocking while too many updates are pending.
+	 */
+	void submit(final String output, final String className, final String testMethod, final File targetDir, final String charset, final boolean storeDigest, final long compressionThreshold) {
+		String key = targetDir.getAbsolutePath() + File.separatorChar + className + File.separatorChar + testMethod;
+		writer.submit(key, new Runnable() {
+			@Override
+			public void run() {
+				int result = FAILED;
+				try {
+					result = update(output, className, testMethod, targetDir, charset, storeDigest, compressionThreshold);
+				} catch (Throwable e) {
+					System.out.println("\n------[ Could not save output produced by " + className + "." + testMethod + " ]------");
+					e.printStackTrace();
+				} finally {
+					completed(result);
+				}
+			}
+		});
+	}
+
+	private static int update(String output, String className, String testMethod, File targetDir, String charset, boolean storeDigest, long compressionThreshold) {
+		File existing = ResultHelper.findExpectedOutputFile(className, testMethod, targetDir);
+		if (existing != null && (!storeDigest || OutputDigest.getDigestFile(existing).exists()) && ResultHelper.hasContent(existing, output, charset)) {
+			return UNCHANGED;
+		}
+		ResultHelper.dumpOutput(output, className, testMethod, targetDir, charset, storeDigest, compressionThreshold);
+		return existing == null ? CREATED : MODIFIED;
+	}
+
+	private void completed(int result) {
+		synchronized (lock) {
+			switch (result) {
+				case UNCHANGED:
+					unchanged++;
+					break;
+				case CREATED:
+					created++;
+					break;
+				case MODIFIED:
+					modified++;
+					break;
+				default:
+					failed++;
+			}
+		}
+	}
+
+	/**
+	 * Waits for all pending updates and prints a summary of the files changed since the last flush.
+	 *
+	 * @return the number of files created or modified since the last flush.
+	 *
+	 * @throws IllegalStateException if any of the updates failed.
+	 */
+	int flush() {
+		writer.awaitPending();
+
+		int created;
+		int modified;
+		int unchanged;
+		int failed;
+		synchronized (lock) {
+			created = this.created;
+			modified = this.modified;
+			unchanged = this.unchanged;
+			failed = this.failed;
+			this.created = this.modified = this.unchanged = this.failed = 0;
+		}
+
+		if (created + modified + unchanged + failed > 0) {
+			System.out.println("\n>> Expected outputs updated: " + created + " created, " + modified + " modified, " + unchanged + " unchanged" + (failed > 0 ? ", " + failed + " failed." : "."));
+			System.out.println(">> Outputs are not validated while 'updateExpectedOutputs' is enabled.");
+		}
+		if (failed > 0) {
+			throw new IllegalStateException("Could not update " + failed + " expected output(s). Check the standard output for details.");
+		}
+		return created + modified;
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A {@link Reader} that reads a file through its {@link FileChannel} into a pooled heap buffer, and decodes its bytes
+ * from that buffer with a {@link CharsetDecoder}. The file is never memory-mapped, so it can be replaced or deleted as
+ * soon as the reader is closed.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class FileChannelReader extends Reader {
+
+	private static final int MAX_POOLED_BUFFERS = 64;
+	private static final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>();
+	private static final AtomicInteger pooled = new AtomicInteger();
+
+	/**
+	 * Reads of at least this many characters are decoded straight into the buffer of the caller, which always has room
+	 * for a complete character.
+	 */
+	private static final int MIN_DIRECT_READ = 16;
+
+	private final FileInputStream input;
+	private final FileChannel channel;
+	private final CharsetDecoder decoder;
+	private final CharBuffer chars = CharBuffer.allocate(OutputComparator.BUFFER_SIZE);
+
+	private ByteBuffer bytes;
+	private boolean endOfFile;
+	private boolean finished;
+
+	/**
+	 * Creates a reader of the file associated with the given input stream
+	 *
+	 * @param input   the input stream of the file to read
+	 * @param charset the charset used to decode the file content
+	 *
+	 */
+	FileChannelReader(FileInputStream input, Charset charset) {
+		this.input = input;
+		this.channel = input.getChannel();
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.chars.flip();
+		this.bytes = newBuffer();
+		this.bytes.flip();
+	}
+
+	private static ByteBuffer newBuffer() {
+		ByteBuffer buffer = pool.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocate(OutputComparator.BUFFER_SIZE * 4);
+		}
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	private static void releaseBuffer(ByteBuffer buffer) {
+		if (pooled.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+			pool.offer(buffer);
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Decodes characters into the given buffer until at least one is decoded or the end of the file is reached. More
+	 * bytes are only read from the file when the decoder has consumed all bytes available.
+	 */
+	private void decode(CharBuffer out) throws IOException {
+		int start = out.position();
+		while (!finished && out.position() == start) {
+			CoderResult result = decoder.decode(bytes, out, endOfFile);
+			if (result.isError()) {
+				result.throwException();
+			}
+			if (result.isUnderflow()) {
+				if (endOfFile) {
+					decoder.flush(out);
+					finished = true;
+				} else {
+					readBytes();
+				}
+			}
+		}
+	}
+
+	private void readBytes() throws IOException {
+		bytes.compact();
+		while (bytes.hasRemaining()) {
+			if (channel.read(bytes) == -1) {
+				endOfFile = true;
+				break;
+			}
+		}
+		bytes.flip();
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		if (bytes == null) {
+			throw new IOException("Reader closed");
+		}
+		if (length == 0) {
+			return 0;
+		}
+		if (!chars.hasRemaining()) {
+			if (finished) {
+				return -1;
+			}
+			if (length >= MIN_DIRECT_READ) {
+				//large reads are decoded straight into the given buffer.
+				CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+				decode(out);
+				int count = out.position() - offset;
+				return count == 0 ? -1 : count;
+			}
+			chars.clear();
+			decode(chars);
+			chars.flip();
+			if (!chars.hasRemaining()) {
+				return -1;
+			}
+		}
+		int count = Math.min(length, chars.remaining());
+		chars.get(buffer, offset, count);
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (bytes != null) {
+			releaseBuffer(bytes);
+			bytes = null;
+		}
+		input.close();
+	}
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+/**
+ * Formats dates, numbers and {@code java.time} values into an {@link Appendable}, reusing formatters cached by
+ * pattern and locale.
+ *
+ * {@link SimpleDateFormat} and {@link DecimalFormat} are not thread-safe, so they are cached separately for each
+ * thread. {@code java.time} formatters are immutable and shared by all threads (see {@link TemporalFormats}).
+ * Values are formatted into a buffer reused by each thread and then appended to the output, so no {@code String} is
+ * created for each value.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class FormatterCache {
+
+	private static final ThreadLocal<FormatterCache> instances = new ThreadLocal<FormatterCache>() {
+		@Override
+		protected FormatterCache initialValue() {
+			return new FormatterCache();
+		}
+	};
+
+	private final Map<Locale, Map<String, DateFormat>> dateFormats = new HashMap<Locale, Map<String, DateFormat>>();
+	private final Map<Locale, Map<String, NumberFormat>> numberFormats = new HashMap<Locale, Map<String, NumberFormat>>();
+	private final StringBuffer buffer = new StringBuffer();
+	private final FieldPosition position = new FieldPosition(0);
+
+	private FormatterCache() {
+	}
+
+	/**
+	 * Appends a formatted value to the given output.
+	 *
+	 * @param out     the output
+	 * @param value   a {@link Date}, {@link Calendar}, {@link Number} or {@code java.time.temporal.TemporalAccessor}.
+	 *                {@code null} is appended as {@code "null"}. Dates are formatted in the default time zone and
+	 *                calendars in their own time zone.
+	 * @param pattern the pattern of a {@link SimpleDateFormat}, {@link DecimalFormat} or {@code java.time.format.DateTimeFormatter},
+	 *                according to the type of value.
+	 * @param locale  the locale used to format the value
+	 *
+	 * @throws IOException if the output can't be appended to.
+	 */
+	static void format(Appendable out, Object value, String pattern, Locale locale) throws IOException {
+		if (value == null) {
+			out.append("null");
+		} else if (value instanceof Date) {
+			instances.get().formatDate(out, (Date) value, TimeZone.getDefault(), pattern, locale);
+		} else if (value instanceof Calendar) {
+			Calendar calendar = (Calendar) value;
+			instances.get().formatDate(out, calendar.getTime(), calendar.getTimeZone(), pattern, locale);
+		} else if (value instanceof Number) {
+			instances.get().formatNumber(out, (Number) value, pattern, locale);
+		} else if (TemporalFormats.isTemporal(value)) {
+			TemporalFormats.format(out, value, pattern, locale);
+		} else {
+			throw new IllegalArgumentException("Cannot format value of type " + value.getClass().getName() + ": " + value);
+		}
+	}
+
+	private void formatDate(Appendable out, Date date, TimeZone timeZone, String pattern, Locale locale) throws IOException {
+		DateFormat format = getFormat(dateFormats, pattern, locale, true);
+		//formatters are reused, so the time zone of each value (or the current default) must be applied to them
+		if (!timeZone.getID().equals(format.getTimeZone().getID())) {
+			format.setTimeZone(timeZone);
+		}
+		buffer.setLength(0);
+		format.format(date, buffer, position);
+		out.append(buffer);
+	}
+
+	private void formatNumber(Appendable out, Number number, String pattern, Locale locale) throws IOException {
+		NumberFormat format = getFormat(numberFormats, pattern, locale, false);
+		buffer.setLength(0);
+		if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+			format.format(number.longValue(), buffer, position);
+		} else if (number instanceof Double || number instanceof Float) {
+			format.format(number.doubleValue(), buffer, position);
+		} else {
+			format.format(number, buffer, position);
+		}
+		out.append(buffer);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <F extends Format> F getFormat(Map<Locale, Map<String, F>> cache, String pattern, Locale locale, boolean date) {
+		Map<String, F> formats = cache.get(locale);
+		if (formats == null) {
+			formats = new HashMap<String, F>();
+			cache.put(locale, formats);
+		}
+		F format = formats.get(pattern);
+		if (format == null) {
+			if (date) {
+				format = (F) new SimpleDateFormat(pattern, locale);
+			} else {
+				format = (F) new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale));
+			}
+			formats.put(pattern, format);
+		}
+		return format;
+	}
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+/**
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+interface FrameMatcher {
+
+	enum Match {
+		/**
+		 * The frame is not of interest.
+		 */
+		SKIP,
+		/**
+		 * The frame may be used if no {@link #FOUND} frame exists in the stack. The outermost candidate is used.
+		 */
+		CANDIDATE,
+		/**
+		 * The frame is the one being searched for. The stack won't be walked any further.
+		 */
+		FOUND
+	}
+
+	Match match(String className, String methodName);
+}
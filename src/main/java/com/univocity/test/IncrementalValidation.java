@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+
+/**
+ * Compares the output of a test method against its expected output while the output is being produced, so the test
+ * fails as soon as a different character is appended to the {@link OutputBuffer}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class IncrementalValidation {
+
+	/**
+	 * Starts the incremental validation of an output, when its first characters are appended.
+	 */
+	interface Source {
+
+		/**
+		 * Identifies the test method producing the output and opens its expected output.
+		 *
+		 * @return the validation of the output, or {@code null} if it shouldn't be validated incrementally.
+		 */
+		IncrementalValidation open();
+	}
+
+	private final String className;
+	private final String testMethod;
+	private final Reader expected;
+	private final AppendedContent appended = new AppendedContent();
+	private final OutputComparator comparator;
+
+	/**
+	 * Creates the incremental validation of an output.
+	 *
+	 * @param className               the test class producing the output
+	 * @param testMethod              the test method producing the output
+	 * @param expected                the expected output. Closed by {@link #close()}.
+	 * @param normalizeLineSeparators flag indicating whether line separators of both outputs should be converted to {@code '\n'}
+	 */
+	IncrementalValidation(String className, String testMethod, Reader expected, boolean normalizeLineSeparators) {
+		this.className = className;
+		this.testMethod = testMethod;
+		this.expected = expected;
+		this.comparator = new OutputComparator(expected, appended, normalizeLineSeparators);
+	}
+
+	/**
+	 * Compares characters appended to the output against the next characters of the expected output.
+	 *
+	 * @param chars  the characters appended
+	 * @param offset the position of the first character appended
+	 * @param length the number of characters appended
+	 *
+	 * @throws AssertionError if the characters appended don't match the expected output.
+	 */
+	void validate(char[] chars, int offset, int length) {
+		appended.set(chars, offset, length);
+		boolean match;
+		try {
+			match = comparator.compareAvailable();
+		} catch (IOException e) {
+			throw new IllegalStateException("Error comparing output of method '" + testMethod + "' against its expected output", e);
+		}
+		if (!match) {
+			throw new AssertionError("Output produced by " + className + "." + testMethod + " does not match the expected output "
+					+ comparator.describeMismatch() + ". The test was interrupted before producing its complete output, as fail-fast validation is enabled.");
+		}
+	}
+
+	/**
+	 * Releases the expected output.
+	 */
+	void close() {
+		try {
+			expected.close();
+		} catch (IOException e) {
+			//ignore
+		}
+	}
+
+	/**
+	 * Provides the characters last appended to the output, then reports the end of the input until more characters
+	 * are appended.
+	 */
+	private static final class AppendedContent extends Reader {
+		private char[] chars;
+		private int offset;
+		private int length;
+
+		void set(char[] chars, int offset, int length) {
+			this.chars = chars;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int read(char[] buffer, int off, int len) {
+			if (length == 0) {
+				return -1;
+			}
+			int count = Math.min(len, length);
+			System.arraycopy(chars, offset, buffer, off, count);
+			offset += count;
+			length -= count;
+			return count;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * Index of the entries of a jar file, built once from its central directory, without reading any entry. Lists the
+ * names under each directory of the jar and opens entries directly from the {@link ZipFile}, so expected outputs
+ * packaged in jars are found and read as efficiently as the ones in exploded directories.
+ *
+ * Indexes are shared and rebuilt only when the jar file is modified. The jar file of a replaced index is closed once
+ * all streams opened from it are closed, and entries requested from a replaced index are opened from the current one.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class JarIndex {
+
+	private static final ConcurrentMap<File, JarIndex> indexes = new ConcurrentHashMap<File, JarIndex>();
+
+	private final File file;
+	private final ZipFile zip;
+	private final long lastModified;
+	private final long length;
+	private final Map<String, Set<String>> directories = new HashMap<String, Set<String>>();
+	private int openStreams;
+	private boolean replaced;
+	private boolean closed;
+
+	private JarIndex(File file) throws IOException {
+		this.file = file;
+		this.lastModified = file.lastModified();
+		this.length = file.length();
+		this.zip = new ZipFile(file);
+		try {
+			index();
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private void index() {
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			String name = entries.nextElement().getName();
+			int end = name.endsWith("/") ? name.length() - 1 : name.length();
+			//registers the entry under its directory, and each directory under its parent, until a known one is found.
+			while (end > 0) {
+				int slash = name.lastIndexOf('/', end - 1);
+				String directory = slash == -1 ? "" : name.substring(0, slash);
+				Set<String> names = directories.get(directory);
+				if (names == null) {
+					names = new TreeSet<String>();
+					directories.put(directory, names);
+				}
+				if (!names.add(name.substring(slash + 1, end))) {
+					break;
+				}
+				end = slash;
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the jar file of a classpath resource.
+	 *
+	 * @param resource the URL of a resource, possibly {@code null}
+	 *
+	 * @return the index of the jar file that contains the resource, or {@code null} if the resource isn't in a jar
+	 * file stored in the filesystem.
+	 */
+	static JarIndex of(URL resource) {
+		if (resource == null || !"jar".equals(resource.getProtocol())) {
+			return null;
+		}
+		String path = resource.getPath();
+		int separator = path.indexOf("!/");
+		if (separator == -1 || path.indexOf("!/", separator + 2) != -1) {
+			//not a jar or a jar nested in another archive.
+			return null;
+		}
+		try {
+			URL jar = new URL(path.substring(0, separator));
+			if (!"file".equals(jar.getProtocol())) {
+				return null;
+			}
+			return of(new File(jar.toURI()));
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static JarIndex of(File file) throws IOException {
+		while (true) {
+			JarIndex index = indexes.get(file);
+			if (index != null && index.lastModified == file.lastModified() && index.length == file.length()) {
+				return index;
+			}
+			if (!file.isFile()) {
+				if (index != null && indexes.remove(file, index)) {
+					index.retire();
+				}
+				return null;
+			}
+			JarIndex updated = new JarIndex(file);
+			if (index == null ? indexes.putIfAbsent(file, updated) == null : indexes.replace(file, index, updated)) {
+				if (index != null) {
+					index.retire();
+				}
+				return updated;
+			}
+			//another thread updated the index first.
+			updated.close();
+		}
+	}
+
+	private synchronized void retire() {
+		replaced = true;
+		closeIfUnused();
+	}
+
+	private synchronized void release() {
+		openStreams--;
+		closeIfUnused();
+	}
+
+	private void closeIfUnused() {
+		if (replaced && openStreams == 0) {
+			close();
+		}
+	}
+
+	/**
+	 * Indicates whether the jar file of this index is closed, which happens once the index is replaced and all
+	 * streams opened from it are closed.
+	 *
+	 * @return {@code true} if the jar file is closed, otherwise {@code false}.
+	 */
+	synchronized boolean isClosed() {
+		return closed;
+	}
+
+	private void close() {
+		closed = true;
+		try {
+			zip.close();
+		} catch (IOException e) {
+			//ignore
+		}
+	}
+
+	/**
+	 * Returns the path of a resource inside its jar.
+	 *
+	 * @param resource the URL of a resource in a jar
+	 *
+	 * @return the name of the resource's entry.
+	 */
+	static String getEntryName(URL resource) {
+		String path = resource.getPath();
+		String name = path.substring(path.indexOf("!/") + 2);
+		try {
+			return URLDecoder.decode(name.replace("+", "%2B"), "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			return name;
+		}
+	}
+
+	/**
+	 * Lists the names of all entries immediately under a directory of the jar.
+	 *
+	 * @param directory path to a directory of the jar, with or without a trailing {@code '/'}
+	 *
+	 * @return the names of all files and directories under the given directory, or an empty set if the directory
+	 * doesn't exist in this jar.
+	 */
+	Set<String> list(String directory) {
+		if (directory.endsWith("/")) {
+			directory = directory.substring(0, directory.length() - 1);
+		}
+		if (directory.startsWith("/")) {
+			directory = directory.substring(1);
+		}
+		Set<String> names = directories.get(directory);
+		return names == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(names);
+	}
+
+	/**
+	 * Opens an entry of the jar.
+	 *
+	 * @param name name of the entry
+	 *
+	 * @return an input stream of the entry contents, or {@code null} if the entry doesn't exist or is a directory.
+	 */
+	InputStream open(String name) {
+		boolean available;
+		synchronized (this) {
+			available = !closed;
+			if (available) {
+				openStreams++;
+			}
+		}
+		if (!available) {
+			//the index was replaced and its jar file closed.
+			try {
+				JarIndex current = of(file);
+				return current == null ? null : current.open(name);
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		try {
+			ZipEntry entry = zip.getEntry(name);
+			if (entry != null && !entry.isDirectory()) {
+				return new FilterInputStream(zip.getInputStream(entry)) {
+					private boolean released;
+
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							synchronized (this) {
+								if (!released) {
+									released = true;
+									release();
+								}
+							}
+						}
+					}
+				};
+			}
+		} catch (IOException e) {
+			//ignore
+		}
+		release();
+		return null;
+	}
+}
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.util.*;
+
+/**
+ * Computes the differences between two sequences of line hashes with the linear space variant of Myers' diff
+ * algorithm: the middle snake of the edit path is found and each half is diffed recursively.
+ *
+ * Lines are compared by hash only, so lines taken as equal must be compared by content afterwards, and the ones that
+ * differ added with {@link #addChanges(int[], int[], int)}. The computation is abandoned if the sequences are too
+ * different (see {@link #MAX_EDIT_DISTANCE} and {@link #MAX_WORK}), in which case no differences are reported.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class LineDiff {
+
+	/**
+	 * Maximum number of lines inserted plus deleted in any section being diffed.
+	 */
+	static final int MAX_EDIT_DISTANCE = 8192;
+
+	/**
+	 * Maximum number of comparisons performed before giving up.
+	 */
+	static final long MAX_WORK = 20000000L;
+
+	private final int[] a;
+	private final int[] b;
+
+	private int[] edits = new int[64];
+	private int editCount;
+	private long work;
+	private boolean tooManyDifferences;
+
+	private int splitX;
+	private int splitY;
+
+	/**
+	 * Creates a diff between two sequences of line hashes
+	 *
+	 * @param a hashes of the original lines
+	 * @param b hashes of the modified lines
+	 */
+	LineDiff(int[] a, int[] b) {
+		this.a = a;
+		this.b = b;
+	}
+
+	/**
+	 * Computes the differences.
+	 *
+	 * @return {@code true} if the differences were computed, or {@code false} if the sequences are too different.
+	 */
+	boolean compute() {
+		editCount = 0;
+		work = 0;
+		tooManyDifferences = false;
+		diff(0, a.length, 0, b.length);
+		if (tooManyDifferences) {
+			editCount = 0;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of edits found. Each edit replaces a (possibly empty) range of lines of the original sequence
+	 * with a (possibly empty) range of lines of the modified sequence. Edits are sorted and never adjacent.
+	 *
+	 * @return the number of edits
+	 */
+	int getEditCount() {
+		return editCount;
+	}
+
+	int getStartA(int edit) {
+		return edits[edit * 4];
+	}
+
+	int getEndA(int edit) {
+		return edits[edit * 4 + 1];
+	}
+
+	int getStartB(int edit) {
+		return edits[edit * 4 + 2];
+	}
+
+	int getEndB(int edit) {
+		return edits[edit * 4 + 3];
+	}
+
+	/**
+	 * Adds edits that replace single lines taken as equal, because their hashes are the same, but whose contents
+	 * differ. Each changed line is merged with the edits adjacent to it.
+	 *
+	 * @param aLines indexes of the changed lines in the original sequence, in ascending order
+	 * @param bLines indexes of the lines of the modified sequence that correspond to each changed line
+	 * @param count  number of changed lines
+	 */
+	void addChanges(int[] aLines, int[] bLines, int count) {
+		int[] previous = edits;
+		int previousCount = editCount;
+		edits = new int[Math.max(64, (previousCount + count) * 4)];
+		editCount = 0;
+
+		int change = 0;
+		for (int edit = 0; edit < previousCount; edit++) {
+			int i = edit * 4;
+			while (change < count && aLines[change] < previous[i]) {
+				addEdit(aLines[change], aLines[change] + 1, bLines[change], bLines[change] + 1);
+				change++;
+			}
+			addEdit(previous[i], previous[i + 1], previous[i + 2], previous[i + 3]);
+		}
+		for (; change < count; change++) {
+			addEdit(aLines[change], aLines[change] + 1, bLines[change], bLines[change] + 1);
+		}
+	}
+
+	private void diff(int aStart, int aEnd, int bStart, int bEnd) {
+		while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+			aStart++;
+			bStart++;
+		}
+		while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+			aEnd--;
+			bEnd--;
+		}
+
+		if (aStart == aEnd || bStart == bEnd) {
+			if (aStart < aEnd || bStart < bEnd) {
+				addEdit(aStart, aEnd, bStart, bEnd);
+			}
+			return;
+		}
+
+		if (!bisect(aStart, aEnd, bStart, bEnd)) {
+			return;
+		}
+		int x = aStart + splitX;
+		int y = bStart + splitY;
+		diff(aStart, x, bStart, y);
+		if (!tooManyDifferences) {
+			diff(x, aEnd, y, bEnd);
+		}
+	}
+
+	/**
+	 * Finds the point where the forward and reverse edit paths overlap (the "middle snake"), storing its
+	 * coordinates, relative to the start of each section, in {@code splitX} and {@code splitY}.
+	 *
+	 * @return {@code false} if the sections are too different, in which case {@code tooManyDifferences} is set.
+	 */
+	private boolean bisect(int aStart, int aEnd, int bStart, int bEnd) {
+		final int n = aEnd - aStart;
+		final int m = bEnd - bStart;
+		final int limit = (n + m + 1) / 2;
+		final int maxD = Math.min(limit, MAX_EDIT_DISTANCE);
+		final int offset = maxD;
+		final int length = 2 * maxD + 2;
+
+		int[] forward = new int[length];
+		int[] reverse = new int[length];
+		Arrays.fill(forward, -1);
+		Arrays.fill(reverse, -1);
+		forward[offset + 1] = 0;
+		reverse[offset + 1] = 0;
+
+		final int delta = n - m;
+		final boolean front = (delta & 1) != 0;
+		int k1start = 0;
+		int k1end = 0;
+		int k2start = 0;
+		int k2end = 0;
+
+		for (int d = 0; d <= maxD; d++) {
+			for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+				int k1Offset = offset + k1;
+				int x1;
+				if (k1 == -d || (k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])) {
+					x1 = forward[k1Offset + 1];
+				} else {
+					x1 = forward[k1Offset - 1] + 1;
+				}
+				int y1 = x1 - k1;
+				int snakeStart = x1;
+				while (x1 < n && y1 < m && a[aStart + x1] == b[bStart + y1]) {
+					x1++;
+					y1++;
+				}
+				if (!countWork(x1 - snakeStart)) {
+					return false;
+				}
+				forward[k1Offset] = x1;
+				if (x1 > n) {
+					k1end += 2;
+				} else if (y1 > m) {
+					k1start += 2;
+				} else if (front) {
+					int k2Offset = offset + delta - k1;
+					if (k2Offset >= 0 && k2Offset < length && reverse[k2Offset] != -1) {
+						if (x1 >= n - reverse[k2Offset]) {
+							splitX = x1;
+							splitY = y1;
+							return true;
+						}
+					}
+				}
+			}
+
+			for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+				int k2Offset = offset + k2;
+				int x2;
+				if (k2 == -d || (k2 != d && reverse[k2Offset - 1] < reverse[k2Offset + 1])) {
+					x2 = reverse[k2Offset + 1];
+				} else {
+					x2 = reverse[k2Offset - 1] + 1;
+				}
+				int y2 = x2 - k2;
+				int snakeStart = x2;
+				while (x2 < n && y2 < m && a[aEnd - x2 - 1] == b[bEnd - y2 - 1]) {
+					x2++;
+					y2++;
+				}
+				if (!countWork(x2 - snakeStart)) {
+					return false;
+				}
+				reverse[k2Offset] = x2;
+				if (x2 > n) {
+					k2end += 2;
+				} else if (y2 > m) {
+					k2start += 2;
+				} else if (!front) {
+					int k1Offset = offset + delta - k2;
+					if (k1Offset >= 0 && k1Offset < length && forward[k1Offset] != -1) {
+						int x1 = forward[k1Offset];
+						if (x1 >= n - x2) {
+							splitX = x1;
+							splitY = offset + x1 - k1Offset;
+							return true;
+						}
+					}
+				}
+			}
+		}
+		if (maxD < limit) {
+			tooManyDifferences = true;
+			return false;
+		}
+		//no lines in common: everything is deleted, then inserted.
+		splitX = n;
+		splitY = 0;
+		return true;
+	}
+
+	private boolean countWork(int snakeLength) {
+		work += snakeLength + 1;
+		if (work > MAX_WORK) {
+			tooManyDifferences = true;
+			return false;
+		}
+		return true;
+	}
+
+	private void addEdit(int aStart, int aEnd, int bStart, int bEnd) {
+		if (editCount > 0) {
+			int last = (editCount - 1) * 4;
+			if (edits[last + 1] == aStart && edits[last + 3] == bStart) {
+				edits[last + 1] = aEnd;
+				edits[last + 3] = bEnd;
+				return;
+			}
+		}
+		if (editCount * 4 == edits.length) {
+			edits = Arrays.copyOf(edits, edits.length * 2);
+		}
+		int i = editCount * 4;
+		edits[i] = aStart;
+		edits[i + 1] = aEnd;
+		edits[i + 2] = bStart;
+		edits[i + 3] = bEnd;
+		editCount++;
+	}
+}
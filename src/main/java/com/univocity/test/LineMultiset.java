@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Counts the lines of the expected and produced outputs to compare them regardless of the order of lines. Each
+ * expected line increments the count of its content and each produced line decrements it, so both outputs have the
+ * same lines if all counts end at zero. Neither output is sorted.
+ *
+ * Counts are kept in an open addressing hash table of line hashes. The content of each distinct line is stored once,
+ * in blocks of {@link #BLOCK_SIZE} characters, and compared when hashes collide. Memory usage is therefore bounded by
+ * the distinct lines of both outputs: about 2 bytes per character plus 40 bytes per distinct line. Outputs with more
+ * than {@link #MAX_DISTINCT_LINES} distinct lines can't be compared.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class LineMultiset {
+
+	private static final int NONE = -1;
+
+	/**
+	 * Number of characters of each block that stores the content of lines. Longer lines are stored in their own array.
+	 */
+	static final int BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * Maximum number of distinct lines, which keeps the hash table within the maximum size of an array.
+	 */
+	static final int MAX_DISTINCT_LINES = 1 << 29;
+
+	private static final int MAX_LINE_LENGTH = Integer.MAX_VALUE - 8;
+
+	private int[] slots = new int[1024];
+	private int size;
+
+	private char[] block;
+	private int blockPosition;
+
+	private char[][] blocks = new char[512][];
+	private int[] starts = new int[512];
+	private int[] lengths = new int[512];
+	private int[] hashes = new int[512];
+	private int[] counts = new int[512];
+	private int[] expectedLines = new int[512];
+	private int[] producedLines = new int[512];
+
+	private char[] line = new char[256];
+	private final char[] buffer = new char[OutputComparator.BUFFER_SIZE];
+
+	LineMultiset() {
+		Arrays.fill(slots, NONE);
+	}
+
+	/**
+	 * Counts the lines of the expected output. Lines are separated by {@code '\n'}.
+	 *
+	 * @param expectedOutput the expected output. Not closed after reading.
+	 *
+	 * @throws IOException if the output can't be read.
+	 */
+	void addExpected(Reader expectedOutput) throws IOException {
+		count(expectedOutput, true);
+	}
+
+	/**
+	 * Discounts the lines of the produced output. Lines are separated by {@code '\n'}.
+	 *
+	 * @param producedOutput the produced output. Not closed after reading.
+	 *
+	 * @throws IOException if the output can't be read.
+	 */
+	void removeProduced(Reader producedOutput) throws IOException {
+		count(producedOutput, false);
+	}
+
+	private void count(Reader input, boolean expected) throws IOException {
+		int lineNumber = 1;
+		int length = 0;
+		int read;
+		while ((read = input.read(buffer, 0, buffer.length)) != -1) {
+			for (int i = 0; i < read; i++) {
+				char ch = buffer[i];
+				if (ch == '\n') {
+					count(length, expected, lineNumber++);
+					length = 0;
+				} else {
+					if (length == line.length) {
+						if (length == MAX_LINE_LENGTH) {
+							throw new IllegalStateException("Can't compare lines longer than " + MAX_LINE_LENGTH + " characters ignoring the order of lines");
+						}
+						line = Arrays.copyOf(line, (int) Math.min(length * 2L, MAX_LINE_LENGTH));
+					}
+					line[length++] = ch;
+				}
+			}
+		}
+		count(length, expected, lineNumber);
+	}
+
+	private void count(int length, boolean expected, int lineNumber) {
+		int hash = hash(line, length);
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		int index;
+		while ((index = slots[slot]) != NONE) {
+			if (hashes[index] == hash && matches(index, length)) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (index == NONE) {
+			index = add(length, hash);
+			slots[slot] = index;
+			if (size * 2 > slots.length) {
+				rehash();
+			}
+		}
+
+		if (expected) {
+			counts[index]++;
+			if (expectedLines[index] == 0) {
+				expectedLines[index] = lineNumber;
+			}
+		} else {
+			counts[index]--;
+			if (producedLines[index] == 0) {
+				producedLines[index] = lineNumber;
+			}
+		}
+	}
+
+	private static int hash(char[] line, int length) {
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + line[i];
+		}
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return hash;
+	}
+
+	private boolean matches(int index, int length) {
+		if (lengths[index] != length) {
+			return false;
+		}
+		char[] chars = blocks[index];
+		int start = starts[index];
+		for (int i = 0; i < length; i++) {
+			if (chars[start + i] != line[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int add(int length, int hash) {
+		if (size == MAX_DISTINCT_LINES) {
+			throw new IllegalStateException("Can't compare outputs with more than " + MAX_DISTINCT_LINES + " distinct lines ignoring the order of lines");
+		}
+		if (size == starts.length) {
+			int capacity = size * 2;
+			blocks = Arrays.copyOf(blocks, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+			expectedLines = Arrays.copyOf(expectedLines, capacity);
+			producedLines = Arrays.copyOf(producedLines, capacity);
+		}
+		int index = size++;
+		if (length > BLOCK_SIZE) {
+			blocks[index] = Arrays.copyOf(line, length);
+			starts[index] = 0;
+		} else {
+			if (block == null || blockPosition + length > BLOCK_SIZE) {
+				block = new char[BLOCK_SIZE];
+				blockPosition = 0;
+			}
+			System.arraycopy(line, 0, block, blockPosition, length);
+			blocks[index] = block;
+			starts[index] = blockPosition;
+			blockPosition += length;
+		}
+		lengths[index] = length;
+		hashes[index] = hash;
+		return index;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		Arrays.fill(slots, NONE);
+		int mask = slots.length - 1;
+		for (int index = 0; index < size; index++) {
+			int slot = hashes[index] & mask;
+			while (slots[slot] != NONE) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = index;
+		}
+	}
+
+	/**
+	 * Indicates whether the expected and produced outputs have the same lines, the same number of times.
+	 *
+	 * @return {@code true} if both outputs have the same lines, in any order.
+	 */
+	boolean isMatch() {
+		for (int index = 0; index < size; index++) {
+			if (counts[index] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Describes the lines of the expected output missing from the produced output, and the lines of the produced
+	 * output not in the expected output. Each line is reported with the number of its first occurrence.
+	 *
+	 * @param maxLines maximum number of lines described
+	 *
+	 * @return the description of the differences between both outputs.
+	 */
+	String describeDifferences(int maxLines) {
+		long missing = 0;
+		long unexpected = 0;
+		for (int index = 0; index < size; index++) {
+			if (counts[index] > 0) {
+				missing += counts[index];
+			} else {
+				unexpected -= counts[index];
+			}
+		}
+
+		StringBuilder out = new StringBuilder("Outputs do not match ignoring the order of lines: ");
+		out.append(missing).append(" expected line(s) not found in the produced output, ");
+		out.append(unexpected).append(" unexpected line(s) in the produced output.");
+
+		int remaining = maxLines;
+		remaining = describe(out, "Missing lines (expected output line numbers):", true, remaining);
+		remaining = describe(out, "Unexpected lines (produced output line numbers):", false, remaining);
+		if (remaining < 0) {
+			out.append("\n  ...");
+		}
+		return out.toString();
+	}
+
+	private int describe(StringBuilder out, String title, boolean missing, int remaining) {
+		final int[] lineNumbers = missing ? expectedLines : producedLines;
+		List<Integer> reported = new ArrayList<Integer>();
+		for (int index = 0; index < size && remaining >= 0; index++) {
+			if ((missing ? counts[index] : -counts[index]) > 0 && remaining-- > 0) {
+				reported.add(index);
+			}
+		}
+		if (reported.isEmpty()) {
+			return remaining;
+		}
+		Collections.sort(reported, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int l1 = lineNumbers[o1];
+				int l2 = lineNumbers[o2];
+				return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+			}
+		});
+
+		out.append('\n').append(title);
+		for (int index : reported) {
+			int count = missing ? counts[index] : -counts[index];
+			out.append("\n  ").append(lineNumbers[index]).append(": ");
+			int length = Math.min(lengths[index], MismatchReport.MAX_LINE_LENGTH);
+			out.append(blocks[index], starts[index], length);
+			if (lengths[index] > length) {
+				out.append("... (").append(lengths[index] - length).append(" more characters)");
+			}
+			if (count > 1) {
+				out.append("  (").append(count).append(" times)");
+			}
+		}
+		return remaining;
+	}
+}
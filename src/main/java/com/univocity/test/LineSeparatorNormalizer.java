@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+/**
+ * Converts {@code \r\n} and {@code \r} line separators into {@code \n} in a single pass. Content is processed in
+ * place and nothing is done if it has no {@code \r}. An instance keeps track of a {@code \r} found at the end of a
+ * chunk, so the content can be normalized in consecutive chunks as it is read.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class LineSeparatorNormalizer {
+
+	private boolean skipLineFeed;
+
+	/**
+	 * Normalizes the line separators of a chunk of content, in place.
+	 *
+	 * @param buffer the buffer with content to normalize
+	 * @param offset position of the first character of the chunk
+	 * @param length number of characters in the chunk
+	 *
+	 * @return the length of the chunk after normalization. Characters after that are left untouched.
+	 */
+	int normalize(char[] buffer, int offset, int length) {
+		int end = offset + length;
+		int i = offset;
+		if (!skipLineFeed) {
+			while (i < end && buffer[i] != '\r') {
+				i++;
+			}
+			if (i == end) {
+				return length;
+			}
+		}
+
+		int write = i;
+		for (; i < end; i++) {
+			char ch = buffer[i];
+			if (ch == '\r') {
+				buffer[write++] = '\n';
+				skipLineFeed = true;
+			} else {
+				if (ch != '\n' || !skipLineFeed) {
+					buffer[write++] = ch;
+				}
+				skipLineFeed = false;
+			}
+		}
+		return write - offset;
+	}
+
+	/**
+	 * Normalizes the line separators of the given content.
+	 *
+	 * @param content the content to normalize
+	 *
+	 * @return the normalized content, or the given {@code String} itself if it has no {@code \r}.
+	 */
+	static String normalize(String content) {
+		int start = content.indexOf('\r');
+		if (start == -1) {
+			return content;
+		}
+		char[] chars = content.toCharArray();
+		int length = start + new LineSeparatorNormalizer().normalize(chars, start, chars.length - start);
+		return new String(chars, 0, length);
+	}
+}
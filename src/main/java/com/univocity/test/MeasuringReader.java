@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+
+/**
+ * A {@link Reader} that charges the time spent reading an output to {@link ValidationPhase#READ}, and records the
+ * number of characters read into the {@link ValidationMetrics} of the current validation. For expected outputs, the
+ * number of bytes read from the underlying stream is recorded when the reader is closed.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class MeasuringReader extends FilterReader {
+
+	private final ValidationMetrics metrics;
+	private final InputStream source;
+	private final boolean expected;
+	private long length;
+	private boolean closed;
+
+	private MeasuringReader(Reader in, InputStream source, ValidationMetrics metrics, boolean expected) {
+		super(in);
+		this.metrics = metrics;
+		this.source = source;
+		this.expected = expected;
+	}
+
+	/**
+	 * Creates a reader of a produced output.
+	 *
+	 * @param produced the produced output
+	 * @param metrics  the metrics of the current validation
+	 *
+	 * @return a reader that measures the reading of the produced output.
+	 */
+	static Reader produced(Reader produced, ValidationMetrics metrics) {
+		return new MeasuringReader(produced, null, metrics, false);
+	}
+
+	/**
+	 * Creates a reader of an expected output.
+	 *
+	 * @param input    the contents of the expected output
+	 * @param encoding the encoding of the expected output
+	 * @param metrics  the metrics of the current validation
+	 *
+	 * @return a reader that measures the reading of the expected output.
+	 */
+	static Reader expected(InputStream input, String encoding, ValidationMetrics metrics) {
+		//files are not wrapped, so they can still be read through their channel. Its position is used to count bytes instead.
+		InputStream source = input instanceof FileInputStream ? input : new CountingInputStream(input);
+		return new MeasuringReader(ResultHelper.newReader(source, encoding), source, metrics, true);
+	}
+
+	@Override
+	public int read() throws IOException {
+		char[] tmp = new char[1];
+		int read = read(tmp, 0, 1);
+		return read == -1 ? -1 : tmp[0];
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		ValidationPhase previous = metrics.switchTo(ValidationPhase.READ);
+		try {
+			int read = in.read(buffer, offset, length);
+			if (read > 0) {
+				this.length += read;
+				if (expected) {
+					metrics.expectedOutputRead(this.length);
+				} else {
+					metrics.producedOutputRead(this.length);
+				}
+			}
+			return read;
+		} finally {
+			metrics.switchTo(previous);
+		}
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		char[] tmp = new char[(int) Math.min(n, 1024)];
+		long skipped = 0;
+		while (skipped < n) {
+			int read = read(tmp, 0, (int) Math.min(n - skipped, tmp.length));
+			if (read == -1) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			if (expected) {
+				try {
+					metrics.addBytesRead(getBytesRead());
+				} catch (IOException e) {
+					//ignore, the size is only reported
+				}
+			}
+		}
+		in.close();
+	}
+
+	private long getBytesRead() throws IOException {
+		if (source instanceof FileInputStream) {
+			return ((FileInputStream) source).getChannel().position();
+		}
+		return ((CountingInputStream) source).count;
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = in.read();
+			if (read != -1) {
+				count++;
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int read = in.read(bytes, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+}
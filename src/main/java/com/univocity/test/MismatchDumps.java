@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+/**
+ * Writes outputs that don't match their expected outputs into temporary files, in background threads. At most
+ * {@link #MAX_PENDING} dumps wait to be written: tests that fail while the queue is full block until there's room.
+ * Pending dumps are written before the JVM exits.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class MismatchDumps {
+
+	static final int MAX_PENDING = 64;
+
+	private static BackgroundWriter writer;
+
+	private static synchronized BackgroundWriter getWriter() {
+		if (writer == null) {
+			writer = new BackgroundWriter("mismatch-dump-writer", MAX_PENDING);
+			Runtime.getRuntime().addShutdownHook(new Thread("mismatch-dumps-flush") {
+				@Override
+				public void run() {
+					writer.awaitPending();
+				}
+			});
+		}
+		return writer;
+	}
+
+	/**
+	 * Queues a dump, blocking while too many dumps are pending.
+	 *
+	 * @param path the path of the file to be written, so dumps of the same file are written in order.
+	 * @param dump the task that writes the file.
+	 */
+	static void submit(String path, Runnable dump) {
+		getWriter().submit(path, dump);
+	}
+}
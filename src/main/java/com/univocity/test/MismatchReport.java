@@ -0,0 +1,430 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Describes the differences between an expected output and a produced output that don't match, in a message of
+ * bounded size. The message shows the lines around the first difference found by an {@link OutputComparator},
+ * followed by the first few lines of a line diff. The complete diff can be written to a separate file.
+ *
+ * Both outputs are read once to collect the lines around the first difference and the hashes of every line
+ * after it, once to compare the contents of the lines the diff matched by hash, and once again to render the diff.
+ * Only hashes are kept in memory.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class MismatchReport {
+
+	/**
+	 * Lines longer than this are truncated in the report.
+	 */
+	static final int MAX_LINE_LENGTH = 500;
+
+	private final OutputComparator comparator;
+	private final boolean normalizeLineSeparators;
+	private final int contextLines;
+	private final int maxDifferences;
+
+	private final int firstLine;
+	private final List<String> expectedWindow = new ArrayList<String>();
+	private final List<String> producedWindow = new ArrayList<String>();
+	private int[] expectedHashes;
+	private int[] producedHashes;
+
+	private LineDiff diff;
+	private boolean diffAvailable;
+	private final StringBuilder differences = new StringBuilder();
+	private int differenceLines;
+	private long totalDifferenceLines;
+	private boolean collecting = true;
+
+	/**
+	 * Creates a report of the first difference found by a comparator.
+	 *
+	 * @param comparator              the comparator that found a difference
+	 * @param normalizeLineSeparators flag indicating whether line separators should be converted to {@code '\n'}
+	 * @param contextLines            number of lines to show before and after each difference
+	 * @param maxDifferences          maximum number of diff lines to include in the message
+	 */
+	MismatchReport(OutputComparator comparator, boolean normalizeLineSeparators, int contextLines, int maxDifferences) {
+		this.comparator = comparator;
+		this.normalizeLineSeparators = normalizeLineSeparators;
+		this.contextLines = contextLines;
+		this.maxDifferences = maxDifferences;
+		this.firstLine = (int) Math.min(comparator.getMismatchLine() - 1, Integer.MAX_VALUE);
+	}
+
+	private Reader normalize(Reader reader) {
+		return normalizeLineSeparators ? new NormalizingReader(reader) : reader;
+	}
+
+	/**
+	 * First pass over both outputs: collects the lines around the first difference, and the hashes of all lines
+	 * from the first difference onwards (lines before it are identical).
+	 *
+	 * @param expected the expected output
+	 * @param produced the produced output
+	 *
+	 * @throws IOException if any of the outputs can't be read
+	 */
+	void scan(Reader expected, Reader produced) throws IOException {
+		expectedHashes = scan(new LineCursor(normalize(expected)), expectedWindow);
+		producedHashes = scan(new LineCursor(normalize(produced)), producedWindow);
+	}
+
+	private int[] scan(LineCursor lines, List<String> window) throws IOException {
+		int windowStart = Math.max(0, firstLine - contextLines);
+		int windowEnd = firstLine + contextLines;
+		lines.skipTo(windowStart);
+
+		StringBuilder line = new StringBuilder();
+		int[] hashes = new int[1024];
+		int count = 0;
+		while (lines.hasNext()) {
+			int index = lines.getLine();
+			line.setLength(0);
+			lines.next(index <= windowEnd ? line : null);
+			if (index <= windowEnd) {
+				window.add(line.toString());
+			}
+			if (index >= firstLine) {
+				if (count == hashes.length) {
+					hashes = Arrays.copyOf(hashes, count * 2);
+				}
+				hashes[count++] = lines.getHash();
+			}
+		}
+		return Arrays.copyOf(hashes, count);
+	}
+
+	/**
+	 * Computes the line diff over the hashes collected by {@link #scan(Reader, Reader)}.
+	 *
+	 * @return {@code true} if the diff was computed and {@link #render(Reader, Reader, Writer)} can be used.
+	 */
+	boolean computeDiff() {
+		diff = new LineDiff(expectedHashes, producedHashes);
+		diffAvailable = diff.compute();
+		if (diffAvailable) {
+			countDifferenceLines();
+		}
+		return diffAvailable;
+	}
+
+	/**
+	 * Second pass over both outputs, after {@link #computeDiff()}: compares the contents of the lines the diff took
+	 * as equal because their hashes are the same, and adds the ones that differ to the diff.
+	 *
+	 * @param expected the expected output
+	 * @param produced the produced output
+	 *
+	 * @throws IOException if any of the outputs can't be read
+	 */
+	void verifyDiff(Reader expected, Reader produced) throws IOException {
+		LineCursor a = new LineCursor(normalize(expected));
+		LineCursor b = new LineCursor(normalize(produced));
+		StringBuilder expectedLine = new StringBuilder();
+		StringBuilder producedLine = new StringBuilder();
+		a.skipTo(firstLine);
+		b.skipTo(firstLine);
+
+		int[] changedA = new int[16];
+		int[] changedB = new int[16];
+		int changes = 0;
+		int edits = diff.getEditCount();
+		for (int e = 0; e <= edits; e++) {
+			int equalEnd = firstLine + (e < edits ? diff.getStartA(e) : expectedHashes.length);
+			while (a.getLine() < equalEnd) {
+				int aLine = a.getLine() - firstLine;
+				int bLine = b.getLine() - firstLine;
+				expectedLine.setLength(0);
+				producedLine.setLength(0);
+				a.read(expectedLine, Integer.MAX_VALUE);
+				b.read(producedLine, Integer.MAX_VALUE);
+				if (!equals(expectedLine, producedLine)) {
+					if (changes == changedA.length) {
+						changedA = Arrays.copyOf(changedA, changes * 2);
+						changedB = Arrays.copyOf(changedB, changes * 2);
+					}
+					changedA[changes] = aLine;
+					changedB[changes] = bLine;
+					changes++;
+				}
+			}
+			if (e < edits) {
+				a.skipTo(firstLine + diff.getEndA(e));
+				b.skipTo(firstLine + diff.getEndB(e));
+			}
+		}
+		if (changes > 0) {
+			diff.addChanges(changedA, changedB, changes);
+			countDifferenceLines();
+		}
+	}
+
+	private static boolean equals(StringBuilder a, StringBuilder b) {
+		int length = a.length();
+		if (length != b.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (a.charAt(i) != b.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void countDifferenceLines() {
+		totalDifferenceLines = 0;
+		int group = 0;
+		int edits = diff.getEditCount();
+		while (group < edits) {
+			int last = lastEditOfHunk(group);
+			int aStart = firstLine + diff.getStartA(group);
+			int contextStart = Math.max(0, aStart - contextLines);
+			int aEnd = Math.min(firstLine + expectedHashes.length, firstLine + diff.getEndA(last) + contextLines);
+			//header, then context and deleted lines, then inserted lines.
+			totalDifferenceLines += 1 + aEnd - contextStart;
+			for (int e = group; e <= last; e++) {
+				totalDifferenceLines += diff.getEndB(e) - diff.getStartB(e);
+			}
+			group = last + 1;
+		}
+	}
+
+	/**
+	 * Returns the last edit of the hunk that starts with the given edit: edits closer than twice the number of
+	 * context lines are shown together.
+	 */
+	private int lastEditOfHunk(int first) {
+		int last = first;
+		while (last + 1 < diff.getEditCount() && diff.getStartA(last + 1) - diff.getEndA(last) <= 2 * contextLines) {
+			last++;
+		}
+		return last;
+	}
+
+	/**
+	 * Last pass over both outputs: renders the differences found by {@link #computeDiff()} in unified diff format.
+	 *
+	 * @param expected the expected output
+	 * @param produced the produced output
+	 * @param out      where to write the complete diff. If {@code null} only the differences included in the message are rendered.
+	 *
+	 * @throws IOException if any of the outputs can't be read or the diff can't be written
+	 */
+	void render(Reader expected, Reader produced, Writer out) throws IOException {
+		LineCursor a = new LineCursor(normalize(expected));
+		LineCursor b = new LineCursor(normalize(produced));
+		StringBuilder line = new StringBuilder();
+
+		int edits = diff.getEditCount();
+		int aLines = firstLine + expectedHashes.length;
+		int group = 0;
+		while (group < edits && (out != null || differenceLines < maxDifferences)) {
+			int last = lastEditOfHunk(group);
+
+			int aStart = firstLine + diff.getStartA(group);
+			int contextStart = Math.max(0, aStart - contextLines);
+			int contextBefore = aStart - contextStart;
+			int aEnd = Math.min(aLines, firstLine + diff.getEndA(last) + contextLines);
+			int contextAfter = aEnd - (firstLine + diff.getEndA(last));
+			int bStart = firstLine + diff.getStartB(group) - contextBefore;
+			int bEnd = firstLine + diff.getEndB(last) + contextAfter;
+
+			write(out, "@@ -" + (contextStart + 1) + ',' + (aEnd - contextStart) + " +" + (bStart + 1) + ',' + (bEnd - bStart) + " @@");
+			a.skipTo(contextStart);
+			b.skipTo(bStart);
+			for (int e = group; e <= last; e++) {
+				int editStartA = firstLine + diff.getStartA(e);
+				while (a.getLine() < editStartA) {
+					write(out, line, ' ', a);
+					b.next(null);
+				}
+				int editEndA = firstLine + diff.getEndA(e);
+				while (a.getLine() < editEndA) {
+					write(out, line, '-', a);
+				}
+				int editEndB = firstLine + diff.getEndB(e);
+				while (b.getLine() < editEndB) {
+					write(out, line, '+', b);
+				}
+			}
+			while (a.getLine() < aEnd) {
+				write(out, line, ' ', a);
+				b.next(null);
+			}
+			group = last + 1;
+		}
+	}
+
+	/**
+	 * Writes the complete diff, after {@link #render(Reader, Reader, Writer)} has collected the differences to
+	 * include in the message.
+	 *
+	 * @param expected the expected output
+	 * @param produced the produced output
+	 * @param out      where to write the complete diff.
+	 *
+	 * @throws IOException if any of the outputs can't be read or the diff can't be written
+	 */
+	void writeDiff(Reader expected, Reader produced, Writer out) throws IOException {
+		collecting = false;
+		render(expected, produced, out);
+	}
+
+	private void write(Writer out, StringBuilder line, char prefix, LineCursor lines) throws IOException {
+		line.setLength(0);
+		line.append(prefix);
+		lines.next(line);
+		write(out, line.toString());
+	}
+
+	private void write(Writer out, String line) throws IOException {
+		if (out != null) {
+			out.write(line);
+			out.write('\n');
+		}
+		if (collecting) {
+			if (differenceLines < maxDifferences) {
+				differences.append('\n').append(line);
+			}
+			differenceLines++;
+		}
+	}
+
+	/**
+	 * Builds the message describing the mismatch.
+	 *
+	 * @param fullDiff the file the complete diff was written to, if any.
+	 *
+	 * @return the message to use in an assertion error.
+	 */
+	String getMessage(File fullDiff) {
+		StringBuilder out = new StringBuilder();
+		out.append("Outputs do not match ").append(comparator.describeMismatch()).append('.');
+		appendWindow(out, "Expected", expectedWindow);
+		appendWindow(out, "Produced", producedWindow);
+
+		if (diff != null) {
+			if (!diffAvailable) {
+				out.append("\nToo many differences to compute a line diff.");
+			} else {
+				out.append("\nLine differences (expected: ").append(firstLine + expectedHashes.length);
+				out.append(" lines, produced: ").append(firstLine + producedHashes.length).append(" lines):");
+				out.append(differences);
+				if (totalDifferenceLines > maxDifferences) {
+					out.append("\n... ").append(totalDifferenceLines - maxDifferences).append(" more lines of differences.");
+				}
+			}
+		}
+		if (fullDiff != null) {
+			out.append("\nFull diff written to: ").append(fullDiff.getAbsolutePath());
+		}
+		return out.toString();
+	}
+
+	private void appendWindow(StringBuilder out, String title, List<String> window) {
+		int windowStart = Math.max(0, firstLine - contextLines);
+		out.append('\n').append(title).append(" output around line ").append(firstLine + 1).append(':');
+		for (int i = 0; i < window.size(); i++) {
+			int line = windowStart + i;
+			out.append('\n').append(line == firstLine ? "> " : "  ");
+			out.append(line + 1).append(": ").append(window.get(i));
+		}
+	}
+
+	/**
+	 * Reads lines sequentially, computing their hashes and copying up to {@link #MAX_LINE_LENGTH} characters of
+	 * each line only when requested. Lines are separated by {@code '\n'}; content after the last separator is a line
+	 * too, even if empty.
+	 */
+	private static final class LineCursor {
+		private final Reader reader;
+		private final char[] buffer = new char[OutputComparator.BUFFER_SIZE];
+		private int position;
+		private int length;
+		private boolean finished;
+		private int line;
+		private int hash;
+
+		LineCursor(Reader reader) {
+			this.reader = reader;
+		}
+
+		int getLine() {
+			return line;
+		}
+
+		int getHash() {
+			return hash;
+		}
+
+		boolean hasNext() {
+			return !finished;
+		}
+
+		void skipTo(int line) throws IOException {
+			while (this.line < line && !finished) {
+				next(null);
+			}
+		}
+
+		void next(StringBuilder out) throws IOException {
+			int size = read(out, MAX_LINE_LENGTH);
+			if (out != null && size > MAX_LINE_LENGTH) {
+				out.append("... (").append(size - MAX_LINE_LENGTH).append(" more characters)");
+			}
+		}
+
+		/**
+		 * Reads the next line, copying up to {@code maxLength} of its characters into {@code out}, if not {@code null}.
+		 *
+		 * @return the length of the line.
+		 */
+		int read(StringBuilder out, int maxLength) throws IOException {
+			int hash = 1;
+			int size = 0;
+			while (true) {
+				if (position == length) {
+					length = reader.read(buffer, 0, buffer.length);
+					position = 0;
+					if (length == -1) {
+						length = 0;
+						finished = true;
+						break;
+					}
+				}
+				char ch = buffer[position++];
+				if (ch == '\n') {
+					break;
+				}
+				hash = 31 * hash + ch;
+				if (out != null && size < maxLength) {
+					out.append(ch);
+				}
+				size++;
+			}
+			this.hash = hash;
+			line++;
+			return size;
+		}
+	}
+}
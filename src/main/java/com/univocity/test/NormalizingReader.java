@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+
+/**
+ * A {@link Reader} that converts {@code \r\n} and {@code \r} line separators into {@code \n} as the content is read.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class NormalizingReader extends FilterReader {
+
+	private final LineSeparatorNormalizer normalizer = new LineSeparatorNormalizer();
+	private final ValidationMetrics metrics = ValidationMetrics.current();
+
+	NormalizingReader(Reader in) {
+		super(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		char[] tmp = new char[1];
+		int read = read(tmp, 0, 1);
+		return read == -1 ? -1 : tmp[0];
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		while (true) {
+			int read = in.read(buffer, offset, length);
+			if (read <= 0) {
+				return read;
+			}
+
+			int normalized;
+			if (metrics == null) {
+				normalized = normalizer.normalize(buffer, offset, read);
+			} else {
+				ValidationPhase previous = metrics.switchTo(ValidationPhase.NORMALIZE);
+				normalized = normalizer.normalize(buffer, offset, read);
+				metrics.switchTo(previous);
+			}
+			if (normalized > 0) {
+				return normalized;
+			}
+			//the only character read was the '\n' of a "\r\n" sequence. Keep reading.
+		}
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		char[] tmp = new char[(int) Math.min(n, 1024)];
+		long skipped = 0;
+		while (skipped < n) {
+			int read = read(tmp, 0, (int) Math.min(n - skipped, tmp.length));
+			if (read == -1) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public void mark(int readAheadLimit) throws IOException {
+		throw new IOException("mark() not supported");
+	}
+
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("reset() not supported");
+	}
+}
@@ -0,0 +1,406 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Buffers the output printed by a test method into fixed-size chunks of characters, which are reused by other buffers
+ * once released. When the output grows beyond a given number of characters, it is moved into a temporary file, and
+ * only the last chunk is kept in memory.
+ *
+ * The buffered output can be read any number of times with {@link #reader()}, without copying it into a single
+ * {@code String}. If an {@link IncrementalValidation.Source} is provided, the output can also be validated as it is
+ * appended.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class OutputBuffer {
+
+	static final int CHUNK_SIZE = 8192;
+
+	private static final int MAX_POOLED_CHUNKS = 1024;
+	private static final Queue<char[]> pool = new ConcurrentLinkedQueue<char[]>();
+	private static final AtomicInteger pooled = new AtomicInteger();
+
+	private final long spillThreshold;
+	private final IncrementalValidation.Source validations;
+	private IncrementalValidation validation;
+	private boolean validationStarted;
+	private final List<char[]> chunks = new ArrayList<char[]>();
+	private char[] current;
+	private int position;
+	private long length;
+
+	private File spillFile;
+	private OutputStream spill;
+	private byte[] bytes;
+
+	/**
+	 * Creates an empty buffer.
+	 *
+	 * @param spillThreshold the number of characters above which the output is moved into a temporary file.
+	 *                       Negative to always keep the output in memory.
+	 * @param validations    starts the incremental validation of the output when its first characters are appended.
+	 *                       Can be {@code null}.
+	 */
+	OutputBuffer(long spillThreshold, IncrementalValidation.Source validations) {
+		this.spillThreshold = spillThreshold;
+		this.validations = validations;
+	}
+
+	private static char[] newChunk() {
+		char[] chunk = pool.poll();
+		if (chunk == null) {
+			return new char[CHUNK_SIZE];
+		}
+		pooled.decrementAndGet();
+		return chunk;
+	}
+
+	private static void releaseChunk(char[] chunk) {
+		if (pooled.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+			pool.offer(chunk);
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Appends the {@code String} representation of an object, as {@link StringBuilder#append(Object)} does.
+	 */
+	OutputBuffer append(Object content) {
+		if (content instanceof CharSequence) {
+			return append((CharSequence) content);
+		}
+		return append(String.valueOf(content));
+	}
+
+	OutputBuffer append(CharSequence content) {
+		if (content == null) {
+			content = "null";
+		}
+		return append(content, 0, content.length());
+	}
+
+	/**
+	 * Appends a subsequence of the given content, as {@link StringBuilder#append(CharSequence, int, int)} does.
+	 */
+	OutputBuffer append(CharSequence content, int start, int end) {
+		int contentLength = end - start;
+		spillIfNeeded(contentLength);
+
+		int offset = start;
+		while (offset < end) {
+			if (current == null || position == CHUNK_SIZE) {
+				nextChunk();
+			}
+			int count = Math.min(CHUNK_SIZE - position, end - offset);
+			if (content instanceof String) {
+				((String) content).getChars(offset, offset + count, current, position);
+			} else if (content instanceof StringBuilder) {
+				((StringBuilder) content).getChars(offset, offset + count, current, position);
+			} else {
+				for (int i = 0; i < count; i++) {
+					current[position + i] = content.charAt(offset + i);
+				}
+			}
+			validate(count);
+			offset += count;
+			position += count;
+		}
+		length += contentLength;
+		return this;
+	}
+
+	OutputBuffer append(char[] content, int offset, int count) {
+		spillIfNeeded(count);
+
+		int end = offset + count;
+		while (offset < end) {
+			if (current == null || position == CHUNK_SIZE) {
+				nextChunk();
+			}
+			int n = Math.min(CHUNK_SIZE - position, end - offset);
+			System.arraycopy(content, offset, current, position, n);
+			validate(n);
+			offset += n;
+			position += n;
+		}
+		length += count;
+		return this;
+	}
+
+	OutputBuffer append(char ch) {
+		spillIfNeeded(1);
+		if (current == null || position == CHUNK_SIZE) {
+			nextChunk();
+		}
+		current[position] = ch;
+		validate(1);
+		position++;
+		length++;
+		return this;
+	}
+
+	/**
+	 * Validates the characters just copied into the current chunk, at the current position.
+	 */
+	private void validate(int count) {
+		if (!validationStarted) {
+			if (validations == null) {
+				return;
+			}
+			validationStarted = true;
+			validation = validations.open();
+		}
+		if (validation != null) {
+			try {
+				validation.validate(current, position, count);
+			} catch (RuntimeException e) {
+				release();
+				throw e;
+			} catch (AssertionError e) {
+				//the test stops here, so the output is discarded and the buffer is ready to be used by the next test.
+				release();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of characters buffered.
+	 *
+	 * @return the length of the output.
+	 */
+	long length() {
+		return length;
+	}
+
+	/**
+	 * Returns a flag indicating whether the output was moved into a temporary file.
+	 *
+	 * @return {@code true} if the output is stored in a temporary file, otherwise {@code false}.
+	 */
+	boolean isSpilled() {
+		return spill != null;
+	}
+
+	private void nextChunk() {
+		if (current != null) {
+			if (spill != null) {
+				writeChunk(current, position);
+				position = 0;
+				return;
+			}
+			chunks.add(current);
+		}
+		current = newChunk();
+		position = 0;
+	}
+
+	private void spillIfNeeded(int contentLength) {
+		if (spill != null || spillThreshold < 0 || length + contentLength <= spillThreshold) {
+			return;
+		}
+		try {
+			spillFile = File.createTempFile("output_", ".tmp");
+			spill = new FileOutputStream(spillFile);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not create temporary file to store output", e);
+		}
+		bytes = new byte[CHUNK_SIZE * 2];
+		for (char[] chunk : chunks) {
+			writeChunk(chunk, CHUNK_SIZE);
+			releaseChunk(chunk);
+		}
+		chunks.clear();
+		if (current != null) {
+			writeChunk(current, position);
+			position = 0;
+		}
+	}
+
+	private void writeChunk(char[] chunk, int count) {
+		//chars are stored as they are, in UTF-16BE, so invalid surrogate pairs are preserved.
+		for (int i = 0, j = 0; i < count; i++) {
+			char ch = chunk[i];
+			bytes[j++] = (byte) (ch >>> 8);
+			bytes[j++] = (byte) ch;
+		}
+		try {
+			spill.write(bytes, 0, count * 2);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error writing output into temporary file " + spillFile.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Returns a reader of the characters buffered so far. The reader must be closed before the buffer is released.
+	 *
+	 * @return a reader of the buffered output.
+	 */
+	Reader reader() {
+		if (spill == null) {
+			return new ChunkReader(length);
+		}
+		try {
+			if (position > 0) {
+				writeChunk(current, position);
+				position = 0;
+			}
+			spill.flush();
+			return new SpillReader(new FileInputStream(spillFile), length);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error reading output from temporary file " + spillFile.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Copies the output into a {@code String}, reading it from the temporary file if the output was spilled.
+	 */
+	@Override
+	public String toString() {
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Output with " + length + " characters is too long to fit in a String");
+		}
+		StringBuilder out = new StringBuilder((int) length);
+		if (spill == null) {
+			for (char[] chunk : chunks) {
+				out.append(chunk, 0, CHUNK_SIZE);
+			}
+			if (current != null) {
+				out.append(current, 0, position);
+			}
+		} else {
+			Reader in = reader();
+			try {
+				char[] buffer = new char[CHUNK_SIZE];
+				int read;
+				while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+					out.append(buffer, 0, read);
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Error reading output from temporary file " + spillFile.getAbsolutePath(), e);
+			} finally {
+				try {
+					in.close();
+				} catch (IOException e) {
+					//ignore
+				}
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Discards the output, returning its chunks to the pool and deleting its temporary file, if any. The buffer is
+	 * emptied, and must not be used afterwards unless it remains the buffer of the current thread.
+	 */
+	void release() {
+		if (validation != null) {
+			validation.close();
+			validation = null;
+		}
+		validationStarted = false;
+		for (char[] chunk : chunks) {
+			releaseChunk(chunk);
+		}
+		chunks.clear();
+		if (current != null) {
+			releaseChunk(current);
+			current = null;
+		}
+		if (spill != null) {
+			try {
+				spill.close();
+			} catch (IOException e) {
+				//ignore
+			}
+			spillFile.delete();
+			spill = null;
+		}
+		position = 0;
+		length = 0;
+	}
+
+	private final class ChunkReader extends Reader {
+		private final long length;
+		private long offset;
+
+		ChunkReader(long length) {
+			this.length = length;
+		}
+
+		@Override
+		public int read(char[] buffer, int off, int len) {
+			if (offset >= length) {
+				return -1;
+			}
+			int chunk = (int) (offset / CHUNK_SIZE);
+			int start = (int) (offset % CHUNK_SIZE);
+			int count = (int) Math.min(Math.min(len, CHUNK_SIZE - start), length - offset);
+			System.arraycopy(chunk < chunks.size() ? chunks.get(chunk) : current, start, buffer, off, count);
+			offset += count;
+			return count;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static final class SpillReader extends Reader {
+		private final InputStream in;
+		private final byte[] bytes = new byte[CHUNK_SIZE * 2];
+		private long remaining;
+
+		SpillReader(InputStream in, long length) {
+			this.in = in;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read(char[] buffer, int off, int len) throws IOException {
+			if (remaining == 0) {
+				return -1;
+			}
+			int count = (int) Math.min(Math.min(len, CHUNK_SIZE), remaining);
+			int byteCount = count * 2;
+			int read = 0;
+			while (read < byteCount) {
+				int n = in.read(bytes, read, byteCount - read);
+				if (n == -1) {
+					throw new EOFException("Temporary file with output is truncated");
+				}
+				read += n;
+			}
+			for (int i = 0, j = 0; i < count; i++, j += 2) {
+				buffer[off + i] = (char) (((bytes[j] & 0xFF) << 8) | (bytes[j + 1] & 0xFF));
+			}
+			remaining -= count;
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
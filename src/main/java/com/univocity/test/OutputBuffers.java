@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+/**
+ * Holds the output appended to an {@link OutputTester} with {@code print} and {@code println}. By default all threads
+ * append to a single buffer, so output printed by helper or worker threads is validated along with the output of the
+ * test method. When outputs are kept per thread, each thread appends to its own buffer instead, so a single tester
+ * can be shared by test methods running in parallel.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+abstract class OutputBuffers {
+
+	private final ThreadLocal<OutputBuffer> local = new ThreadLocal<OutputBuffer>() {
+		@Override
+		protected OutputBuffer initialValue() {
+			return newBuffer();
+		}
+	};
+
+	private OutputBuffer shared;
+	private volatile boolean perThread;
+
+	/**
+	 * Creates an empty buffer.
+	 *
+	 * @return a new buffer for the output.
+	 */
+	protected abstract OutputBuffer newBuffer();
+
+	boolean isPerThread() {
+		return perThread;
+	}
+
+	void setPerThread(boolean perThread) {
+		this.perThread = perThread;
+	}
+
+	private OutputBuffer shared() {
+		if (shared == null) {
+			shared = newBuffer();
+		}
+		return shared;
+	}
+
+	void append(Object content) {
+		if (perThread) {
+			local.get().append(content);
+		} else {
+			synchronized (this) {
+				shared().append(content);
+			}
+		}
+	}
+
+	/**
+	 * Appends an object followed by a newline, without letting content appended by other threads in between.
+	 */
+	void appendLine(Object content) {
+		if (perThread) {
+			local.get().append(content).append('\n');
+		} else {
+			synchronized (this) {
+				shared().append(content).append('\n');
+			}
+		}
+	}
+
+	void append(CharSequence content, int start, int end) {
+		if (perThread) {
+			local.get().append(content, start, end);
+		} else {
+			synchronized (this) {
+				shared().append(content, start, end);
+			}
+		}
+	}
+
+	void append(char[] content, int offset, int count) {
+		if (perThread) {
+			local.get().append(content, offset, count);
+		} else {
+			synchronized (this) {
+				shared().append(content, offset, count);
+			}
+		}
+	}
+
+	void append(char ch) {
+		if (perThread) {
+			local.get().append(ch);
+		} else {
+			synchronized (this) {
+				shared().append(ch);
+			}
+		}
+	}
+
+	/**
+	 * Removes the output appended so far, so that any content appended next goes into a new buffer. Outputs kept per
+	 * thread are only removed for the current thread.
+	 *
+	 * @return the output appended so far, which must be released once processed.
+	 */
+	OutputBuffer take() {
+		if (perThread) {
+			OutputBuffer output = local.get();
+			local.remove();
+			return output;
+		}
+		synchronized (this) {
+			OutputBuffer output = shared();
+			shared = null;
+			return output;
+		}
+	}
+}
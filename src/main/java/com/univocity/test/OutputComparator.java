@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+
+/**
+ * Compares an expected output against a produced output reading both in fixed-size chunks, and stops at the
+ * first character that differs. Memory usage is constant regardless of the size of the outputs.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class OutputComparator {
+
+	static final int BUFFER_SIZE = 8192;
+
+	private final Reader expected;
+	private final Reader produced;
+
+	private final char[] expectedBuffer = new char[BUFFER_SIZE];
+	private final char[] producedBuffer = new char[BUFFER_SIZE];
+	private int expectedPosition;
+	private int expectedLength;
+	private int producedPosition;
+	private int producedLength;
+
+	private long offset;
+	private long line = 1;
+	private long column = 1;
+	private boolean compared;
+	private boolean match;
+	private int expectedChar = -1;
+	private int producedChar = -1;
+
+	/**
+	 * Creates a comparator for the given outputs.
+	 *
+	 * @param expected                the expected output
+	 * @param produced                the output produced by a test method
+	 * @param normalizeLineSeparators flag indicating whether line separators of both outputs should be converted to {@code '\n'}
+	 */
+	OutputComparator(Reader expected, Reader produced, boolean normalizeLineSeparators) {
+		if (normalizeLineSeparators) {
+			expected = new NormalizingReader(expected);
+			produced = new NormalizingReader(produced);
+		}
+		this.expected = expected;
+		this.produced = produced;
+	}
+
+	/**
+	 * Compares the outputs until the end of both is reached or a different character is found.
+	 *
+	 * @return {@code true} if both outputs are identical, otherwise {@code false}.
+	 *
+	 * @throws IOException if any of the outputs can't be read
+	 */
+	boolean compare() throws IOException {
+		if (compared) {
+			return match;
+		}
+		compared = true;
+		return compare(false);
+	}
+
+	/**
+	 * Compares the produced output available so far. When the end of the produced output is reached, the comparison
+	 * is suspended, and resumed from the same point by the next invocation, after the produced output reader has more
+	 * content.
+	 *
+	 * @return {@code false} if a different character was found, otherwise {@code true}.
+	 *
+	 * @throws IOException if any of the outputs can't be read
+	 */
+	boolean compareAvailable() throws IOException {
+		if (compared) {
+			return match;
+		}
+		if (!compare(true)) {
+			compared = true;
+			return false;
+		}
+		return true;
+	}
+
+	private boolean compare(boolean partial) throws IOException {
+		long offset = this.offset;
+		long line = this.line;
+		long column = this.column;
+		try {
+			while (true) {
+				boolean hasExpected = expectedPosition < expectedLength || fillExpected();
+				boolean hasProduced = producedPosition < producedLength || fillProduced();
+				if (partial && !hasProduced) {
+					return true;
+				}
+				if (!hasExpected || !hasProduced) {
+					match = !hasExpected && !hasProduced;
+					if (!match) {
+						recordMismatch();
+					}
+					return match;
+				}
+
+				int e = expectedPosition;
+				int p = producedPosition;
+				int end = p + Math.min(expectedLength - e, producedLength - p);
+				while (p < end) {
+					char ch = producedBuffer[p];
+					if (ch != expectedBuffer[e]) {
+						expectedPosition = e;
+						producedPosition = p;
+						match = false;
+						recordMismatch();
+						return false;
+					}
+					if (ch == '\n') {
+						line++;
+						column = 1;
+					} else {
+						column++;
+					}
+					e++;
+					p++;
+					offset++;
+				}
+				expectedPosition = e;
+				producedPosition = p;
+			}
+		} finally {
+			this.offset = offset;
+			this.line = line;
+			this.column = column;
+		}
+	}
+
+	/**
+	 * Keeps the characters that differ, as the buffers may be consumed later by {@link #getProducedOutput(Reader)}.
+	 */
+	private void recordMismatch() {
+		expectedChar = expectedPosition < expectedLength ? expectedBuffer[expectedPosition] : -1;
+		producedChar = producedPosition < producedLength ? producedBuffer[producedPosition] : -1;
+	}
+
+	private boolean fillExpected() throws IOException {
+		expectedPosition = 0;
+		expectedLength = fill(expected, expectedBuffer);
+		return expectedLength > 0;
+	}
+
+	private boolean fillProduced() throws IOException {
+		producedPosition = 0;
+		producedLength = fill(produced, producedBuffer);
+		return producedLength > 0;
+	}
+
+	private static int fill(Reader reader, char[] buffer) throws IOException {
+		int read;
+		do {
+			read = reader.read(buffer, 0, buffer.length);
+		} while (read == 0);
+		return read == -1 ? 0 : read;
+	}
+
+	/**
+	 * Indicates whether both outputs are identical. Only meaningful after {@link #compare()} has been invoked.
+	 *
+	 * @return {@code true} if both outputs are identical, otherwise {@code false}.
+	 */
+	boolean isMatch() {
+		return match;
+	}
+
+	/**
+	 * Returns the number of characters that matched before the first difference was found.
+	 *
+	 * @return the position of the first character that differs.
+	 */
+	long getMismatchOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the line number (starting from 1) where the first difference was found.
+	 *
+	 * @return the line of the first character that differs.
+	 */
+	long getMismatchLine() {
+		return line;
+	}
+
+	/**
+	 * Returns the column number (starting from 1) where the first difference was found.
+	 *
+	 * @return the column of the first character that differs.
+	 */
+	long getMismatchColumn() {
+		return column;
+	}
+
+	/**
+	 * Describes where the outputs differ, for use in error messages.
+	 *
+	 * @return a short description of the first difference found.
+	 */
+	String describeMismatch() {
+		return "at line " + line + ", column " + column + " (character " + offset + "): expected "
+				+ describe(expectedChar) + " but found " + describe(producedChar);
+	}
+
+	private static String describe(int ch) {
+		if (ch == -1) {
+			return "end of output";
+		}
+		if (ch == '\n') {
+			return "'\\n'";
+		} else if (ch == '\r') {
+			return "'\\r'";
+		} else if (ch == '\t') {
+			return "'\\t'";
+		}
+		return "'" + (char) ch + "'";
+	}
+
+	/**
+	 * Rebuilds the complete produced output after a mismatch, without holding it in memory: the characters before the
+	 * mismatch are identical to the expected output and are read again from it, followed by whatever remains of
+	 * the produced output.
+	 *
+	 * @param expectedOutput a fresh reader of the expected output.
+	 *
+	 * @return a reader of the produced output, with line separators normalized if enabled.
+	 */
+	Reader getProducedOutput(Reader expectedOutput) {
+		final Reader prefix = produced instanceof NormalizingReader ? new NormalizingReader(expectedOutput) : expectedOutput;
+		return new Reader() {
+			long prefixRemaining = offset;
+
+			@Override
+			public int read(char[] buffer, int off, int len) throws IOException {
+				if (len == 0) {
+					return 0;
+				}
+				if (prefixRemaining > 0) {
+					int read = prefix.read(buffer, off, (int) Math.min(len, prefixRemaining));
+					if (read > 0) {
+						prefixRemaining -= read;
+						return read;
+					}
+					prefixRemaining = 0;
+				}
+				if (producedPosition < producedLength) {
+					int count = Math.min(len, producedLength - producedPosition);
+					System.arraycopy(producedBuffer, producedPosition, buffer, off, count);
+					producedPosition += count;
+					return count;
+				}
+				return produced.read(buffer, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				prefix.close();
+			}
+		};
+	}
+}
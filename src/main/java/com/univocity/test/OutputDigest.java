@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.security.*;
+
+/**
+ * An {@link OutputStream} that computes the SHA-256 digest of the bytes written through it, optionally forwarding
+ * them to another stream.
+ *
+ * The digest of an expected output file is stored next to it, in a file with the same name followed by
+ * {@link #EXTENSION}, using the same format as the {@code sha256sum} utility. This allows a produced output to be
+ * validated by hashing it, without reading the expected output. The digest of a compressed expected output is
+ * computed over its uncompressed content.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class OutputDigest extends OutputStream {
+
+	static final String EXTENSION = ".sha256";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final OutputStream out;
+	private final MessageDigest digest;
+	private long size;
+
+	/**
+	 * Creates a digest of the bytes written through this stream.
+	 *
+	 * @param out stream that receives the bytes written. If {@code null} the bytes are discarded after being hashed.
+	 */
+	OutputDigest(OutputStream out) {
+		this.out = out;
+		try {
+			this.digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 digests are not supported", e);
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		digest.update((byte) b);
+		size++;
+		if (out != null) {
+			out.write(b);
+		}
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		digest.update(bytes, offset, length);
+		size += length;
+		if (out != null) {
+			out.write(bytes, offset, length);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (out != null) {
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (out != null) {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written so far.
+	 *
+	 * @return the number of bytes hashed.
+	 */
+	long getSize() {
+		return size;
+	}
+
+	/**
+	 * Completes the digest. Must be invoked only once, after all content has been written.
+	 *
+	 * @return the digest of all bytes written, in lower case hexadecimal.
+	 */
+	String getDigest() {
+		byte[] bytes = digest.digest();
+		char[] out = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			out[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			out[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(out);
+	}
+
+	/**
+	 * Returns the file where the digest of the given file is stored.
+	 *
+	 * @param file an expected output file
+	 *
+	 * @return the digest file, which may not exist.
+	 */
+	static File getDigestFile(File file) {
+		return new File(file.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Writes the digest of a file next to it.
+	 *
+	 * @param file   the file whose digest was computed
+	 * @param digest the digest of the file contents.
+	 *
+	 * @throws IOException if the digest file can't be written
+	 */
+	static void write(File file, String digest) throws IOException {
+		Writer out = new OutputStreamWriter(new FileOutputStream(getDigestFile(file)), "US-ASCII");
+		try {
+			out.write(digest);
+			out.write("  ");
+			out.write(file.getName());
+			out.write('\n');
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a digest stored by {@link #write(File, String)}.
+	 *
+	 * @param input the contents of the digest file. Closed after reading. Can be {@code null}.
+	 *
+	 * @return the digest, or {@code null} if the input is {@code null} or doesn't start with a digest.
+	 */
+	static String read(InputStream input) {
+		if (input == null) {
+			return null;
+		}
+		try {
+			char[] digest = new char[64];
+			Reader in = new InputStreamReader(input, "US-ASCII");
+			int length = 0;
+			int read;
+			while (length < digest.length && (read = in.read(digest, length, digest.length - length)) != -1) {
+				length += read;
+			}
+			if (length < digest.length) {
+				return null;
+			}
+			for (int i = 0; i < length; i++) {
+				char ch = Character.toLowerCase(digest[i]);
+				if ((ch < '0' || ch > '9') && (ch < 'a' || ch > 'f')) {
+					return null;
+				}
+				digest[i] = ch;
+			}
+			return new String(digest);
+		} catch (IOException e) {
+			return null;
+		} finally {
+			try {
+				input.close();
+			} catch (IOException e) {
+				//ignore
+			}
+		}
+	}
+}
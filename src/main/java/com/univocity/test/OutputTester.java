@@ -16,18 +16,45 @@
 package com.univocity.test;
 
 import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * A very simple class to facilitate testing of outputs produced by test cases.
  *
+ * Output appended with {@code print} and {@code println} is buffered by the instance, including output printed from
+ * threads other than the one running the test method. To use a single instance with test methods running in parallel,
+ * enable {@link #setOutputPerThread(boolean)}. Large outputs are moved into temporary files
+ * (see {@link #setOutputSpillThreshold(long)}).
+ *
  * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
  */
 public class OutputTester {
 
-	private StringBuilder out = new StringBuilder();
+	private static final String testerClassSuffix = "." + OutputTester.class.getSimpleName();
+	private static final ConcurrentMap<String, Boolean> testMethods = new ConcurrentHashMap<String, Boolean>();
+
+	private final OutputBuffers outputs = new OutputBuffers() {
+		@Override
+		protected OutputBuffer newBuffer() {
+			return new OutputBuffer(outputSpillThreshold, incrementalValidations);
+		}
+	};
+	private final Writer writer = new OutputWriter(outputs);
+
+	private final IncrementalValidation.Source incrementalValidations = new IncrementalValidation.Source() {
+		@Override
+		public IncrementalValidation open() {
+			return openIncrementalValidation();
+		}
+	};
 
 	private final Class<?> testRoot;
 	private final String packageName;
+	private final String testRootSuffix;
 	private final String expectedOutputsDirPath;
 	private final String expectedOutputEncoding;
 	private boolean normalizeLineSeparators = true;
@@ -35,20 +62,52 @@ public class OutputTester {
 	private File resourceDir;
 	private String testResourcesFolder = "src/test/resources";
 	private boolean updateExpectedOutputs = false;
+	private int mismatchContextLines = 3;
+	private int maxReportedDifferences = 50;
+	private boolean storeOutputDigests = false;
+	private long compressionThreshold = -1;
+	private boolean batchUpdates = false;
+	private boolean asynchronousDumps = false;
+	private long outputSpillThreshold = 16L * 1024L * 1024L;
+	private boolean failFast = false;
+	private boolean ignoreLineOrder = false;
+	private final List<ValidationListener> listeners = new CopyOnWriteArrayList<ValidationListener>();
 
 	private final ResourceReader classLoaderReader = new ClassPathResourceReader() {
 		final ClassLoader classloader = this.getClass().getClassLoader();
 
+		@Override
+		protected ClassLoader getClassLoader() {
+			return classloader;
+		}
+
+		@Override
+		protected Class<?> getReferenceClass() {
+			return OutputTester.this.getClass();
+		}
+
 		@Override
 		public InputStream open(String path) {
-			return classloader.getResourceAsStream(path);
+			InputStream file = openResource(classloader.getResource(path));
+			return file != null ? file : classloader.getResourceAsStream(path);
 		}
 	};
 
 	private final ResourceReader classResourceReader = new ClassPathResourceReader() {
+		@Override
+		protected ClassLoader getClassLoader() {
+			return testRoot.getClassLoader();
+		}
+
+		@Override
+		protected Class<?> getReferenceClass() {
+			return testRoot;
+		}
+
 		@Override
 		public InputStream open(String path) {
-			return testRoot.getResourceAsStream('/' + path);
+			InputStream file = openResource(testRoot.getResource('/' + path));
+			return file != null ? file : testRoot.getResourceAsStream('/' + path);
 		}
 	};
 
@@ -97,6 +156,7 @@ public class OutputTester {
 		}
 		this.testRoot = testRoot == null ? getClass() : testRoot;
 		this.packageName = this.testRoot.getPackage().getName();
+		this.testRootSuffix = "." + this.testRoot.getSimpleName();
 		this.expectedOutputsDirPath = expectedOutputsDirPath;
 		this.expectedOutputEncoding = expectedOutputEncoding;
 	}
@@ -126,6 +186,66 @@ public class OutputTester {
 		return updateExpectedOutputs;
 	}
 
+	/**
+	 * Used to indicate whether expected outputs should be updated in background when {@link #getUpdateExpectedOutputs()}
+	 * evaluates to {@code true}. Updates are queued and written by background threads, and the outputs are not printed
+	 * to the standard output. Expected outputs that are already up-to-date are left untouched. All queued updates are
+	 * written before the JVM exits, or when {@link #flushUpdates()} is invoked, after which a summary of the files
+	 * changed is printed. Defaults to {@code false}.
+	 *
+	 * @param batchUpdates flag indicating whether expected outputs should be updated in background.
+	 */
+	public void setBatchUpdates(boolean batchUpdates) {
+		this.batchUpdates = batchUpdates;
+	}
+
+	/**
+	 * Returns a flag indicating whether expected outputs are updated in background when {@link #getUpdateExpectedOutputs()}
+	 * evaluates to {@code true}. Updates are queued and written by background threads, and the outputs are not printed
+	 * to the standard output. Expected outputs that are already up-to-date are left untouched. All queued updates are
+	 * written before the JVM exits, or when {@link #flushUpdates()} is invoked, after which a summary of the files
+	 * changed is printed. Defaults to {@code false}.
+	 *
+	 * @return {@code true} if expected outputs are updated in background, otherwise {@code false}.
+	 */
+	public boolean isBatchUpdates() {
+		return batchUpdates;
+	}
+
+	/**
+	 * Waits until all expected outputs queued for update are written (see {@link #setBatchUpdates(boolean)}), and
+	 * prints a summary of the files changed. Waits for updates queued by all instances of {@link OutputTester}.
+	 *
+	 * @return the number of expected output files created or modified since the last flush.
+	 *
+	 * @throws IllegalStateException if any of the expected outputs could not be written.
+	 */
+	public int flushUpdates() {
+		return ExpectedOutputUpdates.flushAll();
+	}
+
+	/**
+	 * Registers a listener to be notified with the {@link ValidationMetrics} of each output validated by this
+	 * tester. Validations are only measured while at least one listener is registered.
+	 *
+	 * @param listener the listener to notify, e.g. a {@link ValidationStatistics} shared by all test classes.
+	 */
+	public void addValidationListener(ValidationListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Validation listener cannot be null");
+		}
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener registered with {@link #addValidationListener(ValidationListener)}.
+	 *
+	 * @param listener the listener to remove
+	 */
+	public void removeValidationListener(ValidationListener listener) {
+		listeners.remove(listener);
+	}
+
 	/**
 	 * Prints the result to the standard output without validating its contents
 	 *
@@ -142,7 +262,7 @@ public class OutputTester {
 	 * @param methodArgs arguments passed to the test method. Used when testing with data providers
 	 */
 	public void printAndDontValidate(Object... methodArgs) {
-		printAndDontValidate(getOutputAndClear(), methodArgs);
+		printAndValidateBufferedOutput(false, true, false, methodArgs);
 	}
 
 	/**
@@ -161,7 +281,7 @@ public class OutputTester {
 	 * stored in {expectedOutputsDirPath}/{test_class_name}/{test_method_name}
 	 */
 	public void printAndValidate() {
-		printAndValidate(getOutputAndClear());
+		printAndValidateBufferedOutput(true, true, false, new Object[0]);
 	}
 
 	/**
@@ -171,7 +291,7 @@ public class OutputTester {
 	 * @param methodArgs arguments passed to the test method. Used when testing with data providers
 	 */
 	public void printAndValidateUsingArgs(Object... methodArgs) {
-		printAndValidate(getOutputAndClear(), methodArgs);
+		printAndValidateBufferedOutput(true, true, false, methodArgs);
 	}
 
 	/**
@@ -185,6 +305,48 @@ public class OutputTester {
 		printAndValidateOutput(true, false, output.toString(), methodArgs);
 	}
 
+	/**
+	 * Validates the result read from the given {@code Reader} against the expected output
+	 * stored in {expectedOutputsDirPath}/{test_class_name}/{test_method_name}. Both outputs are compared in
+	 * fixed-size chunks and the comparison stops at the first difference, so neither output is fully loaded into memory.
+	 * The given {@code Reader} is not closed.
+	 *
+	 * @param output     the result of the test case to be validated against the expected output.
+	 * @param methodArgs arguments passed to the test method. Used when testing with data providers
+	 */
+	public void validate(Reader output, Object... methodArgs) {
+		ValidationMetrics metrics = startMetrics();
+		try {
+			StackTraceElement testMethod = findTestMethod(methodArgs);
+			String className = getSimpleClassName(testMethod.getClassName());
+			String method = ResultHelper.getMethodWithArgs(testMethod.getMethodName(), methodArgs);
+			if (metrics != null) {
+				metrics.validating(className, method);
+				output = MeasuringReader.produced(output, metrics);
+			}
+			validateExampleOutput(className, method, output);
+			if (metrics != null) {
+				metrics.passed();
+			}
+		} finally {
+			finishMetrics(metrics);
+		}
+	}
+
+	/**
+	 * Validates the result read from the given {@code InputStream} against the expected output
+	 * stored in {expectedOutputsDirPath}/{test_class_name}/{test_method_name}. The content of the stream is
+	 * decoded using the encoding of the expected output files. Both outputs are compared in fixed-size chunks and
+	 * the comparison stops at the first difference, so neither output is fully loaded into memory.
+	 * The given {@code InputStream} is not closed.
+	 *
+	 * @param output     the result of the test case to be validated against the expected output.
+	 * @param methodArgs arguments passed to the test method. Used when testing with data providers
+	 */
+	public void validate(InputStream output, Object... methodArgs) {
+		validate(ResultHelper.newReader(output, expectedOutputEncoding), methodArgs);
+	}
+
 	/**
 	 * Validates the result against the expected output
 	 * stored in {expectedOutputsDirPath}/{test_class_name}/{test_method_name}
@@ -192,7 +354,7 @@ public class OutputTester {
 	 * @param methodArgs arguments passed to the test method. Used when testing with data providers
 	 */
 	public void validateUsingArgs(Object... methodArgs) {
-		validate(getOutputAndClear(), methodArgs);
+		printAndValidateBufferedOutput(true, false, false, methodArgs);
 	}
 
 	/**
@@ -200,7 +362,7 @@ public class OutputTester {
 	 * stored in {expectedOutputsDirPath}/{test_class_name}/{test_method_name}
 	 */
 	public void validate() {
-		validate(getOutputAndClear());
+		printAndValidateBufferedOutput(true, false, false, new Object[0]);
 	}
 
 	/**
@@ -258,7 +420,7 @@ public class OutputTester {
 	 * different, or fails if the expected output is already updated and the results match.
 	 */
 	public void updateExpectedOutput() {
-		updateExpectedOutput(getOutputAndClear());
+		printAndValidateBufferedOutput(true, false, true, new Object[0]);
 	}
 
 	/**
@@ -269,7 +431,7 @@ public class OutputTester {
 	 * @param methodArgs arguments passed to the test method. Used when testing with data providers
 	 */
 	public void updateExpectedOutputUsingArgs(Object... methodArgs) {
-		updateExpectedOutput(getOutputAndClear(), methodArgs);
+		printAndValidateBufferedOutput(true, false, true, methodArgs);
 	}
 
 
@@ -318,11 +480,12 @@ public class OutputTester {
 
 	/**
 	 * Appends some content to the output and adds a newline at the end.
+	 * Output appended by other threads is validated along with it unless {@link #isOutputPerThread()} is enabled.
 	 *
 	 * @param contents the contents to be appended
 	 */
 	public void println(Object contents) {
-		out.append(contents).append('\n');
+		outputs.appendLine(contents);
 	}
 
 	/**
@@ -336,9 +499,10 @@ public class OutputTester {
 
 	/**
 	 * Appends a newline to the output
+	 * Output appended by other threads is validated along with it unless {@link #isOutputPerThread()} is enabled.
 	 */
 	public void println() {
-		println(out);
+		outputs.append('\n');
 	}
 
 	/**
@@ -353,11 +517,46 @@ public class OutputTester {
 
 	/**
 	 * Appends some content to the output.
+	 * Output appended by other threads is validated along with it unless {@link #isOutputPerThread()} is enabled.
 	 *
 	 * @param contents the contents to be appended
 	 */
 	public void print(Object contents) {
-		out.append(contents);
+		outputs.append(contents);
+	}
+
+	/**
+	 * Returns a {@code Writer} that appends everything written to it to the output, as {@link #print(Object)} does.
+	 * Use it to validate the output of code that writes to a {@code Writer} without producing an intermediate
+	 * {@code String}, then invoke {@link #validate()} or any of its variants once the output is complete.
+	 *
+	 * The same writer can be used by any thread. If {@link #isOutputPerThread()} is enabled, the content written is
+	 * appended to the output of the thread that writes it. Closing the writer has no effect.
+	 *
+	 * @return a writer that appends to the output.
+	 */
+	public Writer writer() {
+		return writer;
+	}
+
+	/**
+	 * Returns an {@code OutputStream} that decodes the bytes written to it and appends the resulting characters to
+	 * the output, as {@link #print(Object)} does. Use it to validate the output of code that writes to an
+	 * {@code OutputStream} without producing an intermediate {@code String}, then invoke {@link #validate()} or any of
+	 * its variants once the output is complete.
+	 *
+	 * Bytes are decoded as they are written. The bytes of a character that is not complete are only decoded when more
+	 * bytes are written, or when the stream is closed. Closing the stream doesn't prevent it from being used again.
+	 *
+	 * @param charset the charset used to decode the bytes written.
+	 *
+	 * @return a stream that appends to the output.
+	 */
+	public OutputStream outputStream(Charset charset) {
+		if (charset == null) {
+			throw new IllegalArgumentException("Charset cannot be null");
+		}
+		return new DecodingOutputStream(writer, charset);
 	}
 
 	/**
@@ -385,51 +584,115 @@ public class OutputTester {
 	 * @param methodArgs        arguments passed to the test method. Used when testing with data providers
 	 */
 	private void printAndValidateOutput(boolean validate, boolean print, String producedOutput, File expectedOutputDir, Object[] methodArgs) {
-		StackTraceElement[] stack = Thread.currentThread().getStackTrace();
-		String classOfSkippedTestMethod = null;
-		String skippedTestMethod = null;
-		for (StackTraceElement element : stack) {
-			String className = element.getClassName();
+		ValidationMetrics metrics = validate ? startMetrics() : null;
+		try {
+			StackTraceElement testMethod = findTestMethod(methodArgs);
+			performValidation(validate, print, testMethod.getClassName(), testMethod.getMethodName(), methodArgs, producedOutput, expectedOutputDir, metrics);
+		} finally {
+			finishMetrics(metrics);
+		}
+	}
 
-			if (className.endsWith("." + OutputTester.class.getSimpleName())) {
-				continue;
+	/**
+	 * Prints and/or validates the output appended with {@code print} and {@code println}, then clears it. Outputs
+	 * stored in a temporary file are validated and printed as they are read from it.
+	 *
+	 * @param validate   flag indicating whether the output should be validated
+	 * @param print      flag indicating whether the output should be printed
+	 * @param update     flag indicating whether the expected output should be updated
+	 * @param methodArgs arguments passed to the test method. Used when testing with data providers
+	 */
+	private void printAndValidateBufferedOutput(boolean validate, boolean print, boolean update, Object[] methodArgs) {
+		OutputBuffer output = takeOutput();
+		try {
+			if (!output.isSpilled()) {
+				if (update) {
+					updateExpectedOutput(output.toString(), methodArgs);
+				} else {
+					printAndValidateOutput(validate, print, output.toString(), methodArgs);
+				}
+			} else {
+				printAndValidateOutput(validate, print, output, update ? getExpectedOutputDir() : null, methodArgs);
 			}
+		} finally {
+			output.release();
+		}
+	}
 
-			if (!className.endsWith("." + testRoot.getSimpleName())) {
-				continue;
+	private void printAndValidateOutput(boolean validate, boolean print, OutputBuffer producedOutput, File expectedOutputDir, Object[] methodArgs) {
+		ValidationMetrics metrics = validate ? startMetrics() : null;
+		try {
+			StackTraceElement testMethod = findTestMethod(methodArgs);
+			String className = getSimpleClassName(testMethod.getClassName());
+			String method = testMethod.getMethodName();
+			if (validate) {
+				method = ResultHelper.getMethodWithArgs(method, methodArgs);
+				if (metrics != null) {
+					metrics.validating(className, method);
+				}
+				validateExampleOutput(className, method, producedOutput, expectedOutputDir, metrics);
+				if (metrics != null) {
+					metrics.passed();
+				}
 			}
+			if (print) {
+				print(producedOutput, className, method);
+			}
+		} finally {
+			finishMetrics(metrics);
+		}
+	}
 
-			if (className.startsWith(packageName)) {
-				String method = element.getMethodName();
+	/**
+	 * Finds out the test method being executed by walking through the current stack trace.
+	 *
+	 * @param methodArgs arguments passed to the test method. Used when testing with data providers
+	 *
+	 * @return the stack trace element of the test method that produced the output to validate.
+	 */
+	private StackTraceElement findTestMethod(final Object[] methodArgs) {
+		StackTraceElement testMethod = StackFrames.find(new FrameMatcher() {
+			@Override
+			public Match match(String className, String method) {
+				if (className.endsWith(testerClassSuffix) || !className.endsWith(testRootSuffix) || !className.startsWith(packageName)) {
+					return Match.SKIP;
+				}
 
-				if (method.toLowerCase().endsWith("validate")) {
-					continue;
+				if (method.regionMatches(true, method.length() - 8, "validate", 0, 8)) {
+					return Match.SKIP;
 				}
 
 				if (methodArgs.length == 0 && !isTestMethod(className, method)) {
-					classOfSkippedTestMethod = className;
-					skippedTestMethod = method;
-					continue;
+					return Match.CANDIDATE;
 				}
 
-				performValidation(validate, print, className, method, methodArgs, producedOutput, expectedOutputDir);
-
-				return;
+				return Match.FOUND;
 			}
-		}
-		if (classOfSkippedTestMethod != null) {
-			performValidation(validate, print, classOfSkippedTestMethod, skippedTestMethod, methodArgs, producedOutput, expectedOutputDir);
-		} else {
+		});
+
+		if (testMethod == null) {
 			throw new IllegalStateException("Could not load file with expected output");
 		}
+		return testMethod;
 	}
 
-	private void performValidation(boolean validate, boolean print, String className, String method, Object[] methodArgs, String producedOutput, File expectedOutputDir) {
-		className = className.substring(className.lastIndexOf('.') + 1, className.length());
+	private static String getSimpleClassName(String className) {
+		return className.substring(className.lastIndexOf('.') + 1, className.length());
+	}
+
+	private void performValidation(boolean validate, boolean print, String className, String method, Object[] methodArgs, String producedOutput, File expectedOutputDir, ValidationMetrics metrics) {
+		className = getSimpleClassName(className);
 
 		if (validate) {
 			method = ResultHelper.getMethodWithArgs(method, methodArgs);
+			if (metrics != null) {
+				metrics.validating(className, method);
+				metrics.producedOutputRead(producedOutput.length());
+			}
 			validateExampleOutput(className, method, producedOutput, expectedOutputDir);
+			if (metrics != null) {
+				metrics.passed();
+			}
 		}
 
 		if (print) {
@@ -437,7 +700,35 @@ public class OutputTester {
 		}
 	}
 
-	private boolean isTestMethod(String className, String methodName) {
+	private ValidationMetrics startMetrics() {
+		return listeners.isEmpty() ? null : ValidationMetrics.start();
+	}
+
+	private void finishMetrics(ValidationMetrics metrics) {
+		if (metrics == null || !metrics.finish()) {
+			return;
+		}
+		for (ValidationListener listener : listeners) {
+			try {
+				listener.validated(metrics);
+			} catch (RuntimeException e) {
+				//must not hide the result of the validation
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private static boolean isTestMethod(String className, String methodName) {
+		String key = className + '#' + methodName;
+		Boolean testMethod = testMethods.get(key);
+		if (testMethod == null) {
+			testMethod = findTestMethod(className, methodName);
+			testMethods.put(key, testMethod);
+		}
+		return testMethod;
+	}
+
+	private static boolean findTestMethod(String className, String methodName) {
 		try {
 			Class<?> clazz = Class.forName(className);
 			//valid test methods are public and have no arguments.
@@ -457,28 +748,50 @@ public class OutputTester {
 		System.out.println("\n------[ End of output produced by " + className + "." + method + " ]------");
 	}
 
+	private void print(OutputBuffer output, String className, String method) {
+		System.out.println("\n------[ Output produced by " + className + "." + method + " ]------");
+		Reader in = output.reader();
+		try {
+			char[] buffer = new char[OutputBuffer.CHUNK_SIZE];
+			int read;
+			while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+				System.out.append(CharBuffer.wrap(buffer, 0, read));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Error printing output produced by " + className + "." + method, e);
+		} finally {
+			close(in);
+		}
+		System.out.println();
+		System.out.println("\n------[ End of output produced by " + className + "." + method + " ]------");
+	}
+
 	private InputStream getResultData(String className, String testMethod) {
+		ValidationPhase previous = ValidationMetrics.enter(ValidationPhase.LOCATE);
+		try {
+			return locateResultData(className, testMethod);
+		} finally {
+			ValidationMetrics.exit(previous);
+		}
+	}
+
+	private InputStream locateResultData(String className, String testMethod) {
 		final String resultsPath = expectedOutputsDirPath + '/' + className;
 
-		InputStream input = (InputStream) ResultHelper.findExpectedResultFile(resultsPath, testMethod, classLoaderReader);
+		InputStream input = openFromManifest(className, testMethod);
+		if (input != null) {
+			return input;
+		}
+
+		input = ResultHelper.openExpectedResult(resultsPath, testMethod, classLoaderReader);
 
-		if (input == null) {
-			input = (InputStream) ResultHelper.findExpectedResultFile(resultsPath, testMethod, classResourceReader);
+		if (input == null && classResourceReader.getCache() != classLoaderReader.getCache()) {
+			input = ResultHelper.openExpectedResult(resultsPath, testMethod, classResourceReader);
 		}
 
 		if (input == null) {
-			File file = new File(resultsPath + '/' + testMethod);
-			if (file.exists()) {
-				try {
-					input = new FileInputStream(file);
-				} catch (Exception ex) {
-					return new ByteArrayInputStream(("Could not load expected output from path: " + file.getAbsolutePath() + ". " + ex.getMessage()).getBytes());
-				}
-			} else {
-				input = (InputStream) ResultHelper.findExpectedResultFile(resultsPath, testMethod, fileReader);
-				if (input != null) {
-					return null;
-				}
+			input = ResultHelper.openExpectedResult(resultsPath, testMethod, fileReader);
+			if (input == null) {
 				return new ByteArrayInputStream(("Could not load expected output from path: " + resultsPath + '/' + testMethod).getBytes());
 			}
 		}
@@ -486,25 +799,168 @@ public class OutputTester {
 		return input;
 	}
 
+	private String getResultDigest(String className, String testMethod) {
+		ValidationPhase previous = ValidationMetrics.enter(ValidationPhase.LOCATE);
+		try {
+			return locateResultDigest(className, testMethod);
+		} finally {
+			ValidationMetrics.exit(previous);
+		}
+	}
+
+	private String locateResultDigest(String className, String testMethod) {
+		final String resultsPath = expectedOutputsDirPath + '/' + className;
+
+		ExpectedOutputManifest.Entry entry = findInManifest(findManifestReader(), className, testMethod);
+		if (entry != null) {
+			return entry.digest;
+		}
+
+		ResourceReader<?> reader = findResultReader(resultsPath, testMethod);
+		if (reader == null) {
+			return null;
+		}
+		String path = ResultHelper.findExpectedResultPath(resultsPath, testMethod, reader);
+		return OutputDigest.read((InputStream) reader.open(path + OutputDigest.EXTENSION));
+	}
+
+	/**
+	 * Returns the first reader, in the order used by {@link #getResultData(String, String)}, that finds the
+	 * expected output of a test method.
+	 */
+	private ResourceReader<?> findResultReader(String resultsPath, String testMethod) {
+		if (ResultHelper.findExpectedResultPath(resultsPath, testMethod, classLoaderReader) != null) {
+			return classLoaderReader;
+		}
+		if (classResourceReader.getCache() != classLoaderReader.getCache() && ResultHelper.findExpectedResultPath(resultsPath, testMethod, classResourceReader) != null) {
+			return classResourceReader;
+		}
+		if (ResultHelper.findExpectedResultPath(resultsPath, testMethod, fileReader) != null) {
+			return fileReader;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the first reader, in the order used by {@link #getResultData(String, String)}, that finds a manifest
+	 * of the expected outputs directory.
+	 */
+	private ResourceReader<?> findManifestReader() {
+		if (classLoaderReader.getCache().getManifest(expectedOutputsDirPath, classLoaderReader) != null) {
+			return classLoaderReader;
+		}
+		if (classResourceReader.getCache() != classLoaderReader.getCache() && classResourceReader.getCache().getManifest(expectedOutputsDirPath, classResourceReader) != null) {
+			return classResourceReader;
+		}
+		if (fileReader.getCache().getManifest(expectedOutputsDirPath, fileReader) != null) {
+			return fileReader;
+		}
+		return null;
+	}
+
+	private ExpectedOutputManifest.Entry findInManifest(ResourceReader<?> reader, String className, String testMethod) {
+		if (reader == null) {
+			return null;
+		}
+		ExpectedOutputManifest manifest = reader.getCache().getManifest(expectedOutputsDirPath, reader);
+		if (!manifest.contains(className)) {
+			return null;
+		}
+		return manifest.find(className, testMethod, reader.isCaseSensitive(expectedOutputsDirPath + '/' + className));
+	}
+
+	/**
+	 * Opens the expected output of a test method listed in the manifest of the expected outputs directory, without
+	 * listing any directory. Files whose size no longer matches the manifest are not used.
+	 *
+	 * @return the expected output, or {@code null} if there's no manifest or the expected output isn't listed in it.
+	 */
+	private InputStream openFromManifest(String className, String testMethod) {
+		ResourceReader<?> reader = findManifestReader();
+		ExpectedOutputManifest.Entry entry = findInManifest(reader, className, testMethod);
+		if (entry == null) {
+			return null;
+		}
+		String path = expectedOutputsDirPath + '/' + className + '/' + entry.name;
+		InputStream input = (InputStream) reader.open(path);
+		if (input instanceof FileInputStream) {
+			long size;
+			try {
+				size = ((FileInputStream) input).getChannel().size();
+			} catch (IOException e) {
+				size = -1;
+			}
+			if (size != entry.size) {
+				close(input);
+				reader.getCache().getManifest(expectedOutputsDirPath, reader).discard(className);
+				return null;
+			}
+		}
+		return ResultHelper.decompress(path, input);
+	}
+
+	private IncrementalValidation openIncrementalValidation() {
+		if (!failFast || updateExpectedOutputs || ignoreLineOrder) {
+			return null;
+		}
+		StackTraceElement testMethod;
+		try {
+			testMethod = findTestMethod(new Object[0]);
+		} catch (IllegalStateException e) {
+			//output not produced by a test method
+			return null;
+		}
+		String className = getSimpleClassName(testMethod.getClassName());
+		String method = testMethod.getMethodName();
+		if (findResultReader(expectedOutputsDirPath + '/' + className, method) == null) {
+			//expected output of tests that use arguments can only be identified once the output is validated.
+			return null;
+		}
+		return new IncrementalValidation(className, method, openExpectedOutput(className, method), normalizeLineSeparators);
+	}
+
 	private void validateExampleOutput(String className, String testMethod, String producedOutput, File expectedOutputDir) {
 		if (updateExpectedOutputs) {
 			expectedOutputDir = getExpectedOutputDir();
 		}
 
-		InputStream input = getResultData(className, testMethod);
-		String expectedOutput = ResultHelper.readExpectedResult(input, expectedOutputEncoding);
-
 		producedOutput = cleanup(producedOutput);
-		expectedOutput = cleanup(expectedOutput);
 
-		if (!updateExpectedOutputs && !producedOutput.equals(expectedOutput)) {
-			String message = "Outputs do not match:" + " expected [" + expectedOutput + "] but found [" + producedOutput + ']';
+		OutputComparator comparator = null;
+		String unorderedMismatch = null;
+		if (!updateExpectedOutputs && !matchesDigest(className, testMethod, producedOutput)) {
+			if (ignoreLineOrder) {
+				unorderedMismatch = compareIgnoringLineOrder(className, testMethod, new StringReader(producedOutput));
+			} else {
+				comparator = compare(className, testMethod, new StringReader(producedOutput));
+			}
+		}
 
-			if (dumpMismatchedOutputToFile || expectedOutputDir != null) {
+		if (unorderedMismatch != null) {
+			if (expectedOutputDir != null || dumpMismatchedOutputToFile) {
+				updateExpectedOutput(className, testMethod, producedOutput, expectedOutputDir);
+			}
+			throw new AssertionError(unorderedMismatch);
+		} else if (comparator != null && !comparator.isMatch()) {
+			String message;
+			if (expectedOutputDir == null) {
+				if (dumpMismatchedOutputToFile && asynchronousDumps) {
+					message = describeMismatchAndDumpInBackground(className, testMethod, comparator, producedOutput);
+				} else {
+					File dump = dumpMismatchedOutputToFile ? updateExpectedOutput(className, testMethod, producedOutput, null) : null;
+					message = describeMismatch(className, testMethod, comparator, producedOutput, dump);
+				}
+			} else {
+				//the expected output will be overwritten, so it must be read first.
+				message = describeMismatch(className, testMethod, comparator, producedOutput, null);
 				updateExpectedOutput(className, testMethod, producedOutput, expectedOutputDir);
 			}
 
 			throw new AssertionError(message);
+		} else if (updateExpectedOutputs && batchUpdates) {
+			ValidationPhase previous = ValidationMetrics.enter(ValidationPhase.WRITE);
+			ExpectedOutputUpdates.getInstance().submit(producedOutput, className, testMethod, expectedOutputDir, expectedOutputEncoding, storeOutputDigests, compressionThreshold);
+			ValidationMetrics.exit(previous);
 		} else if (expectedOutputDir != null) {
 			print(producedOutput, className, testMethod);
 			String message = "Test case shouldn't call 'updateExpectedOutput(...)' once the expected output is up-to-date.";
@@ -518,9 +974,358 @@ public class OutputTester {
 		}
 	}
 
-	private void updateExpectedOutput(String className, String testMethod, String producedOutput, File expectedOutputDir) {
+	private void validateExampleOutput(String className, String testMethod, OutputBuffer producedOutput, File expectedOutputDir, ValidationMetrics metrics) {
+		Reader output = producedOutput.reader();
+		try {
+			if (metrics != null) {
+				metrics.producedOutputRead(producedOutput.length());
+			}
+			if (expectedOutputDir == null || updateExpectedOutputs) {
+				validateExampleOutput(className, testMethod, output);
+				return;
+			}
+
+			//the expected output must be read before it is overwritten, so the produced output is read twice.
+			String message;
+			if (ignoreLineOrder) {
+				message = compareIgnoringLineOrder(className, testMethod, output);
+			} else {
+				OutputComparator comparator = compare(className, testMethod, output);
+				message = comparator.isMatch() ? null : describeMismatch(className, testMethod, comparator, null, null);
+			}
+			if (message == null) {
+				print(producedOutput, className, testMethod);
+				throw new AssertionError("Test case shouldn't call 'updateExpectedOutput(...)' once the expected output is up-to-date.");
+			}
+			close(output);
+			output = producedOutput.reader();
+			updateExpectedOutput(className, testMethod, normalizeLineSeparators ? new NormalizingReader(output) : output, expectedOutputDir);
+			throw new AssertionError(message);
+		} finally {
+			close(output);
+		}
+	}
+
+	private void validateExampleOutput(String className, String testMethod, Reader producedOutput) {
+		if (updateExpectedOutputs) {
+			Reader output = normalizeLineSeparators ? new NormalizingReader(producedOutput) : producedOutput;
+			updateExpectedOutput(className, testMethod, output, getExpectedOutputDir());
+			new IllegalStateException("Test case shouldn't call 'updateExpectedOutput(...)' once the expected output is up-to-date.").printStackTrace();
+			return;
+		}
+
+		String expectedDigest = storeOutputDigests ? getResultDigest(className, testMethod) : null;
+		if (expectedDigest != null) {
+			validateUsingDigest(className, testMethod, producedOutput, expectedDigest);
+		} else {
+			compareExampleOutput(className, testMethod, producedOutput);
+		}
+	}
+
+	/**
+	 * Writes the produced output into a temporary file while computing its digest. If the digest doesn't match the
+	 * expected digest, the output is read back from the temporary file and compared against the expected output.
+	 */
+	private void validateUsingDigest(String className, String testMethod, Reader producedOutput, String expectedDigest) {
+		File spool = null;
 		try {
-			ResultHelper.dumpOutput(producedOutput, className, testMethod, expectedOutputDir, expectedOutputEncoding);
+			spool = File.createTempFile(testMethod + "_", ".txt");
+			OutputDigest digest = new OutputDigest(new FileOutputStream(spool));
+			try {
+				ResultHelper.write(normalizeLineSeparators ? new NormalizingReader(producedOutput) : producedOutput, digest, expectedOutputEncoding);
+			} finally {
+				digest.close();
+			}
+
+			if (!matchesDigest(className, testMethod, expectedDigest, digest)) {
+				Reader spooled = ResultHelper.newReader(new FileInputStream(spool), expectedOutputEncoding);
+				try {
+					compareExampleOutput(className, testMethod, spooled);
+				} finally {
+					close(spooled);
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Error computing digest of output produced by method '" + testMethod + "'", e);
+		} finally {
+			if (spool != null) {
+				spool.delete();
+			}
+		}
+	}
+
+	private boolean matchesDigest(String className, String testMethod, String producedOutput) {
+		if (!storeOutputDigests) {
+			return false;
+		}
+		String expectedDigest = getResultDigest(className, testMethod);
+		if (expectedDigest == null) {
+			return false;
+		}
+		OutputDigest digest = new OutputDigest(null);
+		try {
+			ResultHelper.write(new StringReader(producedOutput), digest, expectedOutputEncoding);
+		} catch (IOException e) {
+			return false;
+		}
+		return matchesDigest(className, testMethod, expectedDigest, digest);
+	}
+
+	/**
+	 * Matches the digest of the produced output against the digest stored for the expected output. If the expected
+	 * output is a file, its size must also match, which catches most edits made to it after the digest was computed.
+	 */
+	private boolean matchesDigest(String className, String testMethod, String expectedDigest, OutputDigest producedDigest) {
+		if (!expectedDigest.equals(producedDigest.getDigest())) {
+			return false;
+		}
+		InputStream expectedOutput = getResultData(className, testMethod);
+		try {
+			if (expectedOutput instanceof FileInputStream) {
+				return ((FileInputStream) expectedOutput).getChannel().size() == producedDigest.getSize();
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			close(expectedOutput);
+		}
+	}
+
+	private void compareExampleOutput(String className, String testMethod, Reader producedOutput) {
+		if (ignoreLineOrder) {
+			String message = compareIgnoringLineOrder(className, testMethod, producedOutput);
+			if (message != null) {
+				throw new AssertionError(message);
+			}
+			return;
+		}
+
+		OutputComparator comparator = compare(className, testMethod, producedOutput);
+		if (!comparator.isMatch()) {
+			File dump = null;
+			if (dumpMismatchedOutputToFile) {
+				Reader expectedOutput = openExpectedOutput(className, testMethod);
+				try {
+					dump = updateExpectedOutput(className, testMethod, comparator.getProducedOutput(expectedOutput), null);
+				} finally {
+					close(expectedOutput);
+				}
+			}
+
+			throw new AssertionError(describeMismatch(className, testMethod, comparator, null, dump));
+		}
+	}
+
+	/**
+	 * Builds a message of bounded size that describes how the produced output differs from the expected output.
+	 * The produced output is read from the given {@code String}, or from the file it was dumped into. If neither is
+	 * available, the rest of the produced output is read from the comparator and no line diff is computed.
+	 * If the output was dumped into a file, the complete line diff is written next to it.
+	 */
+	private String describeMismatch(String className, String testMethod, OutputComparator comparator, String producedOutput, File dump) {
+		MismatchReport report = new MismatchReport(comparator, normalizeLineSeparators, mismatchContextLines, maxReportedDifferences);
+		File fullDiff = null;
+		try {
+			if (scanMismatch(report, className, testMethod, comparator, producedOutput, dump)) {
+				if (dump != null) {
+					fullDiff = new File(dump.getPath() + ".diff");
+				}
+				renderMismatch(report, className, testMethod, producedOutput, dump, fullDiff, false);
+			}
+		} catch (IOException e) {
+			return "Outputs do not match " + comparator.describeMismatch() + ". Error reporting differences: " + e.getMessage();
+		}
+		return report.getMessage(fullDiff);
+	}
+
+	/**
+	 * Builds the message that describes how the produced output differs from the expected output, and queues the
+	 * dump of the produced output and of the complete line diff into temporary files, which are written in background.
+	 */
+	private String describeMismatchAndDumpInBackground(final String className, final String testMethod, OutputComparator comparator, final String producedOutput) {
+		final File dump = ResultHelper.getDumpFile(className, testMethod);
+		final MismatchReport report = new MismatchReport(comparator, normalizeLineSeparators, mismatchContextLines, maxReportedDifferences);
+		File diff = null;
+		String message;
+		try {
+			if (scanMismatch(report, className, testMethod, comparator, producedOutput, null)) {
+				renderMismatch(report, className, testMethod, producedOutput, null, null, false);
+				diff = new File(dump.getPath() + ".diff");
+			}
+			message = report.getMessage(diff);
+		} catch (IOException e) {
+			message = "Outputs do not match " + comparator.describeMismatch() + ". Error reporting differences: " + e.getMessage();
+			diff = null;
+		}
+
+		final File fullDiff = diff;
+		ValidationPhase previous = ValidationMetrics.enter(ValidationPhase.WRITE);
+		MismatchDumps.submit(dump.getPath(), new Runnable() {
+			@Override
+			public void run() {
+				try {
+					updateExpectedOutput(className, testMethod, producedOutput, null);
+					if (fullDiff != null) {
+						renderMismatch(report, className, testMethod, producedOutput, null, fullDiff, true);
+					}
+				} catch (Exception e) {
+					System.out.println("\n------[ Could not dump output produced by " + className + "." + testMethod + " ]------");
+					e.printStackTrace();
+				}
+			}
+		});
+		ValidationMetrics.exit(previous);
+		return message;
+	}
+
+	/**
+	 * Reads both outputs to collect the lines around the first difference and computes the line diff, if the
+	 * produced output can be read again. Both outputs are then read again to compare the lines matched by the diff.
+	 *
+	 * @return {@code true} if the line diff was computed.
+	 */
+	private boolean scanMismatch(MismatchReport report, String className, String testMethod, OutputComparator comparator, String producedOutput, File dump) throws IOException {
+		boolean reopenable = producedOutput != null || dump != null;
+		Reader expected = openExpectedOutput(className, testMethod);
+		Reader produced = reopenable ? openProducedOutput(producedOutput, dump) : comparator.getProducedOutput(openExpectedOutput(className, testMethod));
+		try {
+			report.scan(expected, produced);
+		} finally {
+			close(expected);
+			close(produced);
+		}
+		if (!reopenable || !report.computeDiff()) {
+			return false;
+		}
+
+		expected = openExpectedOutput(className, testMethod);
+		produced = null;
+		try {
+			produced = openProducedOutput(producedOutput, dump);
+			report.verifyDiff(expected, produced);
+		} finally {
+			close(expected);
+			if (produced != null) {
+				close(produced);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads both outputs again to render the line diff, either to collect the differences included in the message,
+	 * or only to write the complete diff to a file.
+	 */
+	private void renderMismatch(MismatchReport report, String className, String testMethod, String producedOutput, File dump, File fullDiff, boolean diffOnly) throws IOException {
+		Reader expected = openExpectedOutput(className, testMethod);
+		Reader produced = null;
+		Writer out = null;
+		try {
+			produced = openProducedOutput(producedOutput, dump);
+			if (fullDiff != null) {
+				out = ResultHelper.newWriter(new FileOutputStream(fullDiff), expectedOutputEncoding);
+			}
+			if (diffOnly) {
+				report.writeDiff(expected, produced, out);
+			} else {
+				report.render(expected, produced, out);
+			}
+		} finally {
+			close(expected);
+			if (produced != null) {
+				close(produced);
+			}
+			if (out != null) {
+				close(out);
+			}
+		}
+	}
+
+	private Reader openExpectedOutput(String className, String testMethod) {
+		ValidationMetrics metrics = ValidationMetrics.current();
+		if (metrics != null) {
+			return MeasuringReader.expected(getResultData(className, testMethod), expectedOutputEncoding, metrics);
+		}
+		return ResultHelper.newReader(getResultData(className, testMethod), expectedOutputEncoding);
+	}
+
+	private Reader openProducedOutput(String producedOutput, File dump) throws IOException {
+		if (producedOutput != null) {
+			return new StringReader(producedOutput);
+		}
+		return ResultHelper.newReader(ResultHelper.openFile(dump), expectedOutputEncoding);
+	}
+
+	private OutputComparator compare(String className, String testMethod, Reader producedOutput) {
+		Reader expectedOutput = openExpectedOutput(className, testMethod);
+		try {
+			OutputComparator comparator = new OutputComparator(expectedOutput, producedOutput, normalizeLineSeparators);
+			comparator.compare();
+			return comparator;
+		} catch (IOException e) {
+			throw new IllegalStateException("Error comparing output of method '" + testMethod + "' against its expected output", e);
+		} finally {
+			close(expectedOutput);
+		}
+	}
+
+	/**
+	 * Compares the lines of the produced output against the lines of the expected output, ignoring their order.
+	 *
+	 * @return a description of the lines missing from or unexpected in the produced output, or {@code null} if both
+	 * outputs have the same lines.
+	 */
+	private String compareIgnoringLineOrder(String className, String testMethod, Reader producedOutput) {
+		Reader expectedOutput = openExpectedOutput(className, testMethod);
+		try {
+			LineMultiset lines = new LineMultiset();
+			lines.addExpected(normalizeLineSeparators ? new NormalizingReader(expectedOutput) : expectedOutput);
+			lines.removeProduced(normalizeLineSeparators ? new NormalizingReader(producedOutput) : producedOutput);
+			return lines.isMatch() ? null : lines.describeDifferences(maxReportedDifferences);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error comparing output of method '" + testMethod + "' against its expected output", e);
+		} finally {
+			close(expectedOutput);
+		}
+	}
+
+	private static void close(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			//ignore
+		}
+	}
+
+	private File updateExpectedOutput(String className, String testMethod, Reader producedOutput, File expectedOutputDir) {
+		ValidationPhase previous = ValidationMetrics.enter(ValidationPhase.WRITE);
+		try {
+			File file = ResultHelper.dumpOutput(producedOutput, className, testMethod, expectedOutputDir, expectedOutputEncoding, expectedOutputDir != null && storeOutputDigests, expectedOutputDir == null ? -1 : compressionThreshold);
+			ValidationMetrics metrics = ValidationMetrics.current();
+			if (metrics != null) {
+				metrics.addBytesWritten(file.length());
+			}
+			System.out.println("\n>> Output dumped into file: " + file.getAbsolutePath());
+			return file;
+		} catch (RuntimeException e) {
+			System.out.println("\n------[ Could not save output produced by " + className + "." + testMethod + " ]------");
+			throw e;
+		} finally {
+			ValidationMetrics.exit(previous);
+		}
+	}
+
+	private File updateExpectedOutput(String className, String testMethod, String producedOutput, File expectedOutputDir) {
+		ValidationPhase previous = ValidationMetrics.enter(ValidationPhase.WRITE);
+		try {
+			File file = ResultHelper.dumpOutput(producedOutput, className, testMethod, expectedOutputDir, expectedOutputEncoding, expectedOutputDir != null && storeOutputDigests, expectedOutputDir == null ? -1 : compressionThreshold);
+			ValidationMetrics metrics = ValidationMetrics.current();
+			if (metrics != null) {
+				metrics.addBytesWritten(file.length());
+			}
+			System.out.println("\n>> Output dumped into file: " + file.getAbsolutePath());
+			return file;
 		} catch (Exception e) {
 			print(producedOutput, className, testMethod);
 			if (e instanceof RuntimeException) {
@@ -528,28 +1333,33 @@ public class OutputTester {
 			} else {
 				throw new IllegalStateException(e);
 			}
+		} finally {
+			ValidationMetrics.exit(previous);
 		}
 	}
 
 	private String cleanup(String content) {
 		if (normalizeLineSeparators) {
-			content = content.replaceAll("\\r\\n", "\n");
-			content = content.replaceAll("\\r", "\n");
+			ValidationPhase previous = ValidationMetrics.enter(ValidationPhase.NORMALIZE);
+			try {
+				content = LineSeparatorNormalizer.normalize(content);
+			} finally {
+				ValidationMetrics.exit(previous);
+			}
 		}
 		return content;
 	}
 
 	/**
-	 * Discards any output stored in the internal buffer.
+	 * Discards any output stored in the internal buffer, or in the buffer of the current thread if
+	 * {@link #isOutputPerThread()} is enabled.
 	 */
 	public void clear() {
-		this.out = new StringBuilder();
+		takeOutput().release();
 	}
 
-	private String getOutputAndClear() {
-		String output = out.toString();
-		clear();
-		return output;
+	private OutputBuffer takeOutput() {
+		return outputs.take();
 	}
 
 	/**
@@ -595,4 +1405,260 @@ public class OutputTester {
 	public void setDumpMismatchedOutputToFile(boolean dumpMismatchedOutputToFile) {
 		this.dumpMismatchedOutputToFile = dumpMismatchedOutputToFile;
 	}
+
+	/**
+	 * Returns the number of lines shown before and after each difference when the produced output doesn't match
+	 * the expected output. Defaults to 3.
+	 *
+	 * @return the number of lines of context shown around differences.
+	 */
+	public int getMismatchContextLines() {
+		return mismatchContextLines;
+	}
+
+	/**
+	 * Defines the number of lines shown before and after each difference when the produced output doesn't match
+	 * the expected output. Defaults to 3.
+	 *
+	 * @param mismatchContextLines the number of lines of context shown around differences.
+	 */
+	public void setMismatchContextLines(int mismatchContextLines) {
+		if (mismatchContextLines < 0) {
+			throw new IllegalArgumentException("Number of context lines cannot be negative");
+		}
+		this.mismatchContextLines = mismatchContextLines;
+	}
+
+	/**
+	 * Returns the maximum number of line diff lines included in the assertion error thrown when the produced output
+	 * doesn't match the expected output. If the output is dumped into a temporary file, the complete diff is written
+	 * next to it, in a file with the {@code .diff} extension. Defaults to 50.
+	 *
+	 * @return the maximum number of diff lines in the error message.
+	 */
+	public int getMaxReportedDifferences() {
+		return maxReportedDifferences;
+	}
+
+	/**
+	 * Defines the maximum number of line diff lines included in the assertion error thrown when the produced output
+	 * doesn't match the expected output. If the output is dumped into a temporary file, the complete diff is written
+	 * next to it, in a file with the {@code .diff} extension. Defaults to 50.
+	 *
+	 * @param maxReportedDifferences the maximum number of diff lines in the error message.
+	 */
+	public void setMaxReportedDifferences(int maxReportedDifferences) {
+		if (maxReportedDifferences < 0) {
+			throw new IllegalArgumentException("Maximum number of reported differences cannot be negative");
+		}
+		this.maxReportedDifferences = maxReportedDifferences;
+	}
+
+	/**
+	 * Returns a flag indicating whether a digest of each expected output is stored next to it. The digest is stored in a
+	 * file with the same name as the expected output followed by {@code .sha256} (e.g. {@code method.txt.sha256}),
+	 * which is written every time the expected output is updated. If enabled, produced outputs are validated by
+	 * computing their digest and comparing it with the stored digest, and the expected output is only read if the
+	 * digests differ. Defaults to {@code false}.
+	 *
+	 * <strong>Note:</strong> if an expected output is edited by hand, its {@code .sha256} file must be deleted.
+	 *
+	 * @return {@code true} if digests of expected outputs are stored and used for validation, otherwise {@code false}.
+	 */
+	public boolean isStoreOutputDigests() {
+		return storeOutputDigests;
+	}
+
+	/**
+	 * Defines whether a digest of each expected output should be stored next to it. The digest is stored in a
+	 * file with the same name as the expected output followed by {@code .sha256} (e.g. {@code method.txt.sha256}),
+	 * which is written every time the expected output is updated. If enabled, produced outputs are validated by
+	 * computing their digest and comparing it with the stored digest, and the expected output is only read if the
+	 * digests differ. Defaults to {@code false}.
+	 *
+	 * <strong>Note:</strong> if an expected output is edited by hand, its {@code .sha256} file must be deleted.
+	 *
+	 * @param storeOutputDigests flag indicating whether digests of expected outputs should be stored and used for validation.
+	 */
+	public void setStoreOutputDigests(boolean storeOutputDigests) {
+		this.storeOutputDigests = storeOutputDigests;
+	}
+
+	/**
+	 * Returns the size, in bytes, above which new expected output files are compressed with GZIP and saved with the
+	 * {@code .gz} extension appended to their name (e.g. {@code method.txt.gz}). Existing files keep their format when
+	 * updated. Expected outputs with the {@code .gz} extension are always decompressed when read.
+	 * Defaults to {@code -1}, i.e. new files are never compressed.
+	 *
+	 * @return the size above which new expected output files are compressed, or a negative number if compression is disabled.
+	 */
+	public long getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Defines the size, in bytes, above which new expected output files are compressed with GZIP and saved with the
+	 * {@code .gz} extension appended to their name (e.g. {@code method.txt.gz}). Existing files keep their format when
+	 * updated. Expected outputs with the {@code .gz} extension are always decompressed when read.
+	 * Defaults to {@code -1}, i.e. new files are never compressed.
+	 *
+	 * @param compressionThreshold the size above which new expected output files are compressed. Use {@code 0} to
+	 *                             compress all new files, or a negative number to disable compression.
+	 */
+	public void setCompressionThreshold(long compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	/**
+	 * Returns a flag indicating whether outputs that don't match the expected output are dumped into temporary files
+	 * in background threads, so the test fails without waiting for the files to be written. Only applies if
+	 * {@link #isDumpMismatchedOutputToFile()} evaluates to {@code true}. Pending dumps are written before the JVM exits.
+	 * Defaults to {@code false}.
+	 *
+	 * @return {@code true} if mismatched outputs are dumped in background, otherwise {@code false}.
+	 */
+	public boolean isAsynchronousDumps() {
+		return asynchronousDumps;
+	}
+
+	/**
+	 * Defines whether outputs that don't match the expected output should be dumped into temporary files in background
+	 * threads, so the test fails without waiting for the files to be written. Only applies if
+	 * {@link #isDumpMismatchedOutputToFile()} evaluates to {@code true}. Pending dumps are written before the JVM exits.
+	 * Defaults to {@code false}.
+	 *
+	 * @param asynchronousDumps flag indicating whether mismatched outputs should be dumped in background.
+	 */
+	public void setAsynchronousDumps(boolean asynchronousDumps) {
+		this.asynchronousDumps = asynchronousDumps;
+	}
+
+	/**
+	 * Returns the number of characters above which the output appended with {@code print} and {@code println} is moved
+	 * from memory into a temporary file. Outputs stored in a temporary file are validated and printed as they are read
+	 * from it, without being loaded into memory. Defaults to 16M characters.
+	 *
+	 * @return the number of characters above which the output is stored in a temporary file, or a negative number if
+	 * the output is always kept in memory.
+	 */
+	public long getOutputSpillThreshold() {
+		return outputSpillThreshold;
+	}
+
+	/**
+	 * Defines the number of characters above which the output appended with {@code print} and {@code println} is moved
+	 * from memory into a temporary file. Outputs stored in a temporary file are validated and printed as they are read
+	 * from it, without being loaded into memory. Defaults to 16M characters.
+	 *
+	 * The threshold applies to outputs started after it is changed, i.e. after the current output is validated
+	 * or cleared.
+	 *
+	 * @param outputSpillThreshold the number of characters above which the output is stored in a temporary file.
+	 *                             Use a negative number to always keep the output in memory.
+	 */
+	public void setOutputSpillThreshold(long outputSpillThreshold) {
+		this.outputSpillThreshold = outputSpillThreshold;
+	}
+
+	/**
+	 * Returns a flag indicating whether the output appended with {@code print}, {@code println}, {@link #writer()} or
+	 * {@link #outputStream(Charset)} is compared against the expected output as it is produced. If enabled, the
+	 * expected output is located when the first characters of the output are appended, and each append fails with an
+	 * {@link AssertionError} as soon as a character doesn't match. The output must still be validated once complete,
+	 * e.g. with {@link #validate()}. Defaults to {@code false}.
+	 *
+	 * The expected output is located using the name of the test method only: outputs of tests whose expected output
+	 * depends on arguments (see {@link #validateUsingArgs(Object...)}) are only validated once complete. Outputs are
+	 * not validated incrementally while {@link #getUpdateExpectedOutputs()} is enabled.
+	 *
+	 * @return {@code true} if outputs are validated as they are produced, otherwise {@code false}.
+	 */
+	public boolean isFailFast() {
+		return failFast;
+	}
+
+	/**
+	 * Defines whether the output appended with {@code print}, {@code println}, {@link #writer()} or
+	 * {@link #outputStream(Charset)} should be compared against the expected output as it is produced. If enabled, the
+	 * expected output is located when the first characters of the output are appended, and each append fails with an
+	 * {@link AssertionError} as soon as a character doesn't match. The output must still be validated once complete,
+	 * e.g. with {@link #validate()}. Defaults to {@code false}.
+	 *
+	 * The expected output is located using the name of the test method only: outputs of tests whose expected output
+	 * depends on arguments (see {@link #validateUsingArgs(Object...)}) are only validated once complete. Outputs are
+	 * not validated incrementally while {@link #getUpdateExpectedOutputs()} is enabled.
+	 *
+	 * @param failFast flag indicating whether outputs should be validated as they are produced.
+	 */
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	/**
+	 * Returns a flag indicating whether outputs are compared regardless of the order of their lines. If enabled, the
+	 * produced output matches the expected output if both have the same lines, the same number of times, in any
+	 * order. Neither output is sorted: lines are counted in a hash table, and the lines missing from the produced
+	 * output or not in the expected output are reported on mismatch. Defaults to {@code false}.
+	 *
+	 * The content of each distinct line of both outputs is kept in memory while they are compared, so outputs whose
+	 * lines are mostly distinct take about 2 bytes per character.
+	 *
+	 * Outputs are not validated as they are produced (see {@link #isFailFast()}) while this is enabled. Produced
+	 * outputs provided as a {@link Reader} are not dumped into a temporary file on mismatch.
+	 *
+	 * @return {@code true} if the order of lines is ignored when comparing outputs, otherwise {@code false}.
+	 */
+	public boolean isIgnoreLineOrder() {
+		return ignoreLineOrder;
+	}
+
+	/**
+	 * Defines whether outputs should be compared regardless of the order of their lines, e.g. when rows are produced
+	 * in parallel. If enabled, the produced output matches the expected output if both have the same lines, the same
+	 * number of times, in any order. Neither output is sorted: lines are counted in a hash table, and the lines missing
+	 * from the produced output or not in the expected output are reported on mismatch. Defaults to {@code false}.
+	 *
+	 * The content of each distinct line of both outputs is kept in memory while they are compared, so outputs whose
+	 * lines are mostly distinct take about 2 bytes per character.
+	 *
+	 * Outputs are not validated as they are produced (see {@link #isFailFast()}) while this is enabled. Produced
+	 * outputs provided as a {@link Reader} are not dumped into a temporary file on mismatch.
+	 *
+	 * @param ignoreLineOrder flag indicating whether the order of lines should be ignored when comparing outputs.
+	 */
+	public void setIgnoreLineOrder(boolean ignoreLineOrder) {
+		this.ignoreLineOrder = ignoreLineOrder;
+	}
+
+	/**
+	 * Indicates whether the output is buffered separately for each thread.
+	 *
+	 * Output appended with {@code print}, {@code println}, {@link #writer()} or {@link #outputStream(Charset)} is
+	 * buffered once for all threads by default, so output printed from helper or worker threads is validated along
+	 * with the output of the test method. If enabled, each thread appends to its own buffer instead, so a single
+	 * instance can be shared by test methods running in parallel (e.g. with JUnit's concurrent execution or surefire's
+	 * {@code parallel=methods}). Output printed by any other thread is then not part of the output validated by the
+	 * test method. Defaults to {@code false}.
+	 *
+	 * @return {@code true} if each thread appends to its own output, otherwise {@code false}.
+	 */
+	public boolean isOutputPerThread() {
+		return outputs.isPerThread();
+	}
+
+	/**
+	 * Defines whether the output should be buffered separately for each thread.
+	 *
+	 * Output appended with {@code print}, {@code println}, {@link #writer()} or {@link #outputStream(Charset)} is
+	 * buffered once for all threads by default, so output printed from helper or worker threads is validated along
+	 * with the output of the test method. If enabled, each thread appends to its own buffer instead, so a single
+	 * instance can be shared by test methods running in parallel (e.g. with JUnit's concurrent execution or surefire's
+	 * {@code parallel=methods}). Output printed by any other thread is then not part of the output validated by the
+	 * test method. Defaults to {@code false}.
+	 *
+	 * @param outputPerThread flag indicating whether each thread should append to its own output.
+	 */
+	public void setOutputPerThread(boolean outputPerThread) {
+		outputs.setPerThread(outputPerThread);
+	}
 }
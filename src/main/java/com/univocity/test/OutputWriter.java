@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+
+/**
+ * A {@link Writer} that appends everything written to the output buffered by an {@link OutputTester}, so the same
+ * instance can be used by every thread that produces the output.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class OutputWriter extends Writer {
+
+	private final OutputBuffers outputs;
+
+	OutputWriter(OutputBuffers outputs) {
+		this.outputs = outputs;
+	}
+
+	@Override
+	public void write(int c) {
+		outputs.append((char) c);
+	}
+
+	@Override
+	public void write(char[] buffer, int offset, int length) {
+		outputs.append(buffer, offset, length);
+	}
+
+	@Override
+	public void write(String str, int offset, int length) {
+		outputs.append(str, offset, offset + length);
+	}
+
+	@Override
+	public Writer append(CharSequence content) {
+		outputs.append(content);
+		return this;
+	}
+
+	@Override
+	public Writer append(CharSequence content, int start, int end) {
+		outputs.append(content == null ? "null" : content, start, end);
+		return this;
+	}
+
+	@Override
+	public Writer append(char c) {
+		outputs.append(c);
+		return this;
+	}
+
+	/**
+	 * Does nothing: the content written is immediately available to the {@link OutputTester}.
+	 */
+	@Override
+	public void flush() {
+	}
+
+	/**
+	 * Does nothing: the writer remains usable, so it can be passed to code that closes it once its output is complete.
+	 */
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+
+/**
+ * Process-wide cache of directory listings and of expected output files resolved for each test method, including
+ * test methods without an expected output file. There is one cache for the filesystem and one for each class loader,
+ * so the same cache is shared by all {@link OutputTester} instances and resource readers that read from the same place.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class ResourceCache {
+
+	/**
+	 * Cache of files read directly from the filesystem. Paths are converted to absolute paths.
+	 */
+	static final ResourceCache FILESYSTEM = new ResourceCache(true);
+
+	private static final ResourceCache BOOTSTRAP = new ResourceCache(false);
+
+	private static final Map<ClassLoader, ResourceCache> classLoaderCaches = new WeakHashMap<ClassLoader, ResourceCache>();
+
+	/**
+	 * Marks test methods without an expected output file, as {@code null} values are not allowed in the cache.
+	 */
+	private static final String NOT_FOUND = "";
+
+	private final boolean absolutePaths;
+	private final ConcurrentMap<String, ResultNameIndex> listings = new ConcurrentHashMap<String, ResultNameIndex>();
+	private final ConcurrentMap<String, ConcurrentMap<String, String>> resolvedNames = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+	private final ConcurrentMap<String, ExpectedOutputManifest> manifests = new ConcurrentHashMap<String, ExpectedOutputManifest>();
+
+	/**
+	 * Marks directories without a manifest of expected outputs, as {@code null} values are not allowed in the cache.
+	 */
+	private static final ExpectedOutputManifest NO_MANIFEST = new ExpectedOutputManifest();
+
+	private ResourceCache(boolean absolutePaths) {
+		this.absolutePaths = absolutePaths;
+	}
+
+	/**
+	 * Returns the cache of resources loaded from a given class loader.
+	 *
+	 * @param classLoader the class loader used to load resources
+	 *
+	 * @return the cache shared by all readers of the given class loader.
+	 */
+	static ResourceCache of(ClassLoader classLoader) {
+		if (classLoader == null) {
+			return BOOTSTRAP;
+		}
+		synchronized (classLoaderCaches) {
+			ResourceCache cache = classLoaderCaches.get(classLoader);
+			if (cache == null) {
+				cache = new ResourceCache(false);
+				classLoaderCaches.put(classLoader, cache);
+			}
+			return cache;
+		}
+	}
+
+	private String key(String path) {
+		if (absolutePaths) {
+			return toAbsolutePath(new File(path));
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the absolute path of a file, without "." and ".." elements, and without touching the filesystem.
+	 *
+	 * @param file the file whose path will be returned
+	 *
+	 * @return the normalized absolute path of the given file
+	 */
+	static String toAbsolutePath(File file) {
+		String path = file.getAbsolutePath();
+		String separator = File.separator;
+		if (!path.contains(separator + '.')) {
+			return path;
+		}
+
+		LinkedList<String> elements = new LinkedList<String>();
+		for (String element : path.split(Pattern.quote(separator))) {
+			if (element.equals("..")) {
+				if (!elements.isEmpty()) {
+					elements.removeLast();
+				}
+			} else if (element.length() > 0 && !element.equals(".")) {
+				elements.add(element);
+			}
+		}
+
+		StringBuilder out = new StringBuilder(path.length());
+		for (String element : elements) {
+			if (out.length() > 0 || path.startsWith(separator)) {
+				out.append(separator);
+			}
+			out.append(element);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Returns the index of the names of all resources under a given path, listing them with the given reader only once.
+	 *
+	 * @param path   path to a directory
+	 * @param reader the reader used to list the resources if they haven't been listed before
+	 *
+	 * @return the index of the names of all resources under the given path.
+	 */
+	ResultNameIndex listResourcesUnder(String path, ResourceReader<?> reader) {
+		String key = key(path);
+		ResultNameIndex names = listings.get(key);
+		if (names == null) {
+			names = new ResultNameIndex(reader.listResourcesUnder(path));
+			listings.put(key, names);
+		}
+		return names;
+	}
+
+	/**
+	 * Returns the name of the expected output file previously resolved for a test method.
+	 *
+	 * @param path       path to the directory of expected outputs
+	 * @param testMethod name of the test method
+	 *
+	 * @return the name of the resolved file, an empty {@code String} if the test method has no expected output file,
+	 * or {@code null} if the test method hasn't been resolved yet.
+	 */
+	String getResolvedName(String path, String testMethod) {
+		Map<String, String> names = resolvedNames.get(key(path));
+		if (names == null) {
+			return null;
+		}
+		return names.get(testMethod);
+	}
+
+	/**
+	 * Stores the name of the expected output file resolved for a test method.
+	 *
+	 * @param path       path to the directory of expected outputs
+	 * @param testMethod name of the test method
+	 * @param name       name of the resolved file, or {@code null} if the test method has no expected output file.
+	 */
+	void setResolvedName(String path, String testMethod, String name) {
+		String key = key(path);
+		ConcurrentMap<String, String> names = resolvedNames.get(key);
+		if (names == null) {
+			names = new ConcurrentHashMap<String, String>();
+			ConcurrentMap<String, String> existing = resolvedNames.putIfAbsent(key, names);
+			if (existing != null) {
+				names = existing;
+			}
+		}
+		names.put(testMethod, name == null ? NOT_FOUND : name);
+	}
+
+	/**
+	 * Returns the manifest of expected outputs stored in a directory, reading it with the given reader only once.
+	 *
+	 * @param path   path to a directory of expected outputs
+	 * @param reader the reader used to read the manifest if it hasn't been read before
+	 *
+	 * @return the manifest of the directory, or {@code null} if the directory has no manifest or it can't be read.
+	 */
+	ExpectedOutputManifest getManifest(String path, ResourceReader<?> reader) {
+		String key = key(path);
+		ExpectedOutputManifest manifest = manifests.get(key);
+		if (manifest == null) {
+			manifest = NO_MANIFEST;
+			InputStream input = (InputStream) reader.open(path + '/' + ExpectedOutputManifest.FILE_NAME);
+			if (input != null) {
+				try {
+					manifest = ExpectedOutputManifest.read(input);
+				} catch (IOException e) {
+					System.out.println(">> Ignoring expected outputs manifest under " + path + ": " + e.getMessage());
+				}
+			}
+			manifests.put(key, manifest);
+		}
+		return manifest == NO_MANIFEST ? null : manifest;
+	}
+
+	private void invalidate(String path) {
+		listings.remove(path);
+		resolvedNames.remove(path);
+	}
+
+	/**
+	 * Stops using the manifest entries of a test class directory in all manifests whose directory may be the given one.
+	 */
+	private void discardFromManifests(String directory, String className) {
+		for (Map.Entry<String, ExpectedOutputManifest> e : manifests.entrySet()) {
+			String key = e.getKey().replace(File.separatorChar, '/');
+			if (e.getValue() != NO_MANIFEST && (directory.equals(key) || directory.endsWith(key.startsWith("/") ? key : '/' + key))) {
+				e.getValue().discard(className);
+			}
+		}
+	}
+
+	/**
+	 * Discards everything cached about a directory whose contents have been modified. Classpath entries are discarded
+	 * if the given directory ends with their path, as it may be the origin of these resources.
+	 *
+	 * @param directory the directory modified
+	 */
+	static void invalidate(File directory) {
+		String absolutePath = toAbsolutePath(directory);
+		FILESYSTEM.invalidate(absolutePath);
+
+		String path = absolutePath.replace(File.separatorChar, '/');
+		int slash = path.lastIndexOf('/');
+		String parent = path.substring(0, Math.max(slash, 0));
+		String className = path.substring(slash + 1);
+		FILESYSTEM.discardFromManifests(parent, className);
+
+		List<ResourceCache> caches = new ArrayList<ResourceCache>();
+		caches.add(BOOTSTRAP);
+		synchronized (classLoaderCaches) {
+			caches.addAll(classLoaderCaches.values());
+		}
+		for (ResourceCache cache : caches) {
+			cache.discardFromManifests(parent, className);
+			Set<String> keys = new HashSet<String>(cache.listings.keySet());
+			keys.addAll(cache.resolvedNames.keySet());
+			for (String key : keys) {
+				if (path.endsWith(key.startsWith("/") ? key : '/' + key)) {
+					cache.invalidate(key);
+				}
+			}
+		}
+	}
+}
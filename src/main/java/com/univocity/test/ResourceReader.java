@@ -22,9 +22,11 @@ import java.util.*;
  */
 interface ResourceReader<T> {
 
-	boolean isCaseSensitive();
+	boolean isCaseSensitive(String path);
 
 	T open(String path);
 
 	Set<String> listResourcesUnder(String path);
+
+	ResourceCache getCache();
 }
\ No newline at end of file
@@ -16,7 +16,8 @@
 package com.univocity.test;
 
 import java.io.*;
-import java.util.*;
+import java.nio.charset.*;
+import java.util.zip.*;
 
 /**
  * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
@@ -25,90 +26,290 @@ class ResultHelper {
 
 	private static final FileLocator fileLocator = new FileLocator();
 
+	private static volatile File tempDir;
+
+	/**
+	 * Extension of expected outputs compressed with GZIP, which are decompressed as they are read.
+	 */
+	static final String COMPRESSED_EXTENSION = ".gz";
+
+	private static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<char[]> buffers = new ThreadLocal<char[]>() {
+		@Override
+		protected char[] initialValue() {
+			return new char[OutputComparator.BUFFER_SIZE];
+		}
+	};
+
 	static <T> T findExpectedResultFile(final String resultsPath, String testMethod, ResourceReader<T> reader) {
-		Set<String> matchingResources = new TreeSet<String>();
+		String path = findExpectedResultPath(resultsPath, testMethod, reader);
+		if (path == null) {
+			return null;
+		}
+		return reader.open(path);
+	}
 
-		for (String name : reader.listResourcesUnder(resultsPath)) {
-			if (name.toLowerCase().startsWith(testMethod.toLowerCase())) {
-				if (name.equals(testMethod)) {
-					return reader.open(resultsPath + '/' + name);
-				}
-				matchingResources.add(name);
-			}
+	static InputStream openExpectedResult(final String resultsPath, String testMethod, ResourceReader<?> reader) {
+		String path = findExpectedResultPath(resultsPath, testMethod, reader);
+		if (path == null) {
+			return null;
 		}
+		return decompress(path, (InputStream) reader.open(path));
+	}
 
-		if (!matchingResources.isEmpty()) {
-			if (!reader.isCaseSensitive()) {
-				for (String name : matchingResources) {
-					if (name.equalsIgnoreCase(testMethod)) { //result file has different case
-						return reader.open(resultsPath + '/' + name);
-					}
-				}
-			}
+	static boolean isCompressed(String path) {
+		int length = COMPRESSED_EXTENSION.length();
+		return path.regionMatches(true, path.length() - length, COMPRESSED_EXTENSION, 0, length);
+	}
 
-			for (String name : matchingResources) {
-				if (name.length() > testMethod.length() && name.charAt(testMethod.length()) == '.') { //result file has extension
-					if (reader.isCaseSensitive()) {
-						if (name.substring(0, testMethod.length()).equals(testMethod)) { //case must match
-							return reader.open(resultsPath + '/' + name);
-						}
-					} else {
-						return reader.open(resultsPath + '/' + name);
-					}
-				}
+	/**
+	 * Decompresses the contents of a file or resource if its name ends with {@code .gz}.
+	 */
+	static InputStream decompress(String path, InputStream input) {
+		if (input == null || !isCompressed(path)) {
+			return input;
+		}
+		try {
+			return new GZIPInputStream(input, COMPRESSION_BUFFER_SIZE);
+		} catch (IOException e) {
+			try {
+				input.close();
+			} catch (IOException ex) {
+				//ignore
 			}
+			throw new IllegalStateException("Could not read compressed file: " + path, e);
 		}
-		return null;
 	}
 
-	static String readExpectedResult(InputStream input, String encoding) {
-		Scanner scanner = null;
+	static InputStream openFile(File file) throws IOException {
+		return decompress(file.getName(), new FileInputStream(file));
+	}
+
+	static OutputStream compress(OutputStream output) throws IOException {
+		return new GZIPOutputStream(output, COMPRESSION_BUFFER_SIZE);
+	}
+
+	static String findExpectedResultPath(final String resultsPath, String testMethod, ResourceReader<?> reader) {
+		ResourceCache cache = reader.getCache();
+		String name = cache.getResolvedName(resultsPath, testMethod);
+		if (name == null) {
+			ResultNameIndex names = cache.listResourcesUnder(resultsPath, reader);
+			//case sensitivity is only probed in directories known to exist.
+			name = names.isEmpty() ? null : names.find(testMethod, reader.isCaseSensitive(resultsPath));
+			cache.setResolvedName(resultsPath, testMethod, name);
+		}
+		if (name == null || name.length() == 0) {
+			return null;
+		}
+		return resultsPath + '/' + name;
+	}
+
+	static Reader newReader(InputStream input, String encoding) {
+		Charset charset;
+		try {
+			charset = encoding == null ? Charset.defaultCharset() : Charset.forName(encoding);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unsupported encoding: " + encoding, e);
+		}
+
+		if (input instanceof FileInputStream) {
+			return new FileChannelReader((FileInputStream) input, charset);
+		}
+		return new InputStreamReader(input, charset);
+	}
+
+	static File dumpOutput(String output, String className, String testMethod, File targetDir, String charset, boolean storeDigest, long compressionThreshold) {
+		return dumpOutput(new StringReader(output), className, testMethod, targetDir, charset, storeDigest, compressionThreshold);
+	}
+
+	/**
+	 * Writes an output into the file with the expected output of a test method, under the given directory (or the
+	 * temporary directory if {@code null}). An existing file is overwritten and keeps its compression format. A new file
+	 * is compressed if its size exceeds the given compression threshold (a negative threshold disables compression).
+	 *
+	 * The output is written into a temporary file in the same directory, which then replaces the target file.
+	 */
+	static File dumpOutput(Reader output, String className, String testMethod, File targetDir, String charset, boolean storeDigest, long compressionThreshold) {
+		File dirOfClassResult = getDirOfClassResult(className, testMethod, targetDir);
+
+		File targetFile = findExpectedResultFile(dirOfClassResult.getAbsolutePath(), testMethod, fileLocator);
+		boolean newFile = targetFile == null;
+		if (newFile) {
+			targetFile = new File(dirOfClassResult.getAbsolutePath() + File.separatorChar + testMethod + ".txt");
+		}
+
+		File tmp = null;
+		CompressibleFileOutputStream newFileOutput = null;
 		try {
-			if (encoding == null) {
-				scanner = new Scanner(input);
+			//starts with '.' so it's never taken as the expected output of a test method.
+			tmp = File.createTempFile("." + testMethod + "_", ".tmp", dirOfClassResult);
+
+			OutputStream out;
+			if (newFile && compressionThreshold >= 0) {
+				out = newFileOutput = new CompressibleFileOutputStream(tmp, compressionThreshold);
+			} else {
+				out = new FileOutputStream(tmp);
+				if (isCompressed(targetFile.getName())) {
+					out = compress(out);
+				}
+			}
+			OutputDigest digest = null;
+			try {
+				if (storeDigest) {
+					out = digest = new OutputDigest(out);
+				}
+				write(output, out, charset);
+			} finally {
+				out.close();
+			}
+
+			if (newFileOutput != null && newFileOutput.getFile() != tmp) {
+				tmp.delete();
+				tmp = newFileOutput.getFile();
+				targetFile = new File(targetFile.getPath() + COMPRESSED_EXTENSION);
+			}
+			rename(tmp, targetFile);
+			tmp = null;
+
+			if (digest != null) {
+				OutputDigest.write(targetFile, digest.getDigest());
 			} else {
-				scanner = new Scanner(input, encoding);
+				//a digest of previous contents can't be used anymore.
+				OutputDigest.getDigestFile(targetFile).delete();
 			}
-			scanner.useDelimiter("\\A");
-			return scanner.hasNext() ? scanner.next() : "";
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not write expected output of method '" + testMethod + "': error writing content to file: " + targetFile.getAbsolutePath(), e);
 		} finally {
-			if (scanner != null) {
-				scanner.close();
+			if (tmp != null) {
+				tmp.delete();
+				//the stream may have switched to a compressed file before failing.
+				if (newFileOutput != null && newFileOutput.getFile() != null && newFileOutput.getFile() != tmp) {
+					newFileOutput.getFile().delete();
+				}
+			}
+			if (newFile) {
+				ResourceCache.invalidate(dirOfClassResult);
 			}
 		}
+		return targetFile;
 	}
 
-	static void dumpOutput(String output, String className, String testMethod, File targetDir, String charset) {
+	private static File getDirOfClassResult(String className, String testMethod, File targetDir) {
 		if (targetDir == null) {
+			targetDir = getTempDir(testMethod);
+		}
+
+		File dirOfClassResult = new File(targetDir.getAbsolutePath() + File.separatorChar + className);
+		if (!dirOfClassResult.exists()) {
+			dirOfClassResult.mkdir();
+		}
+		return dirOfClassResult;
+	}
+
+	/**
+	 * Returns the directory where temporary files are created, which is resolved only once.
+	 */
+	private static File getTempDir(String testMethod) {
+		File dir = tempDir;
+		if (dir == null) {
 			try {
 				File tmp = File.createTempFile(testMethod + "_", ".txt");
-				targetDir = new File(tmp.getParent());
+				dir = new File(tmp.getParent());
 				tmp.delete();
 			} catch (Exception e) {
 				throw new IllegalStateException("Could not dump expected output of method '" + testMethod + "': error creating temporary file.", e);
 			}
+			tempDir = dir;
 		}
+		return dir;
+	}
+
+	/**
+	 * Returns the file, in the temporary directory, that {@link #dumpOutput(Reader, String, String, File, String, boolean, long)}
+	 * writes when no target directory is given and compression is disabled.
+	 */
+	static File getDumpFile(String className, String testMethod) {
+		File dirOfClassResult = getDirOfClassResult(className, testMethod, null);
+		File dumpFile = findExpectedResultFile(dirOfClassResult.getAbsolutePath(), testMethod, fileLocator);
+		if (dumpFile == null) {
+			dumpFile = new File(dirOfClassResult.getAbsolutePath() + File.separatorChar + testMethod + ".txt");
+		}
+		return dumpFile;
+	}
 
+	/**
+	 * Replaces a file with another. The rename is atomic where the filesystem supports it, otherwise (e.g. on Windows,
+	 * where a file can't be renamed over an existing one) the target is deleted first.
+	 */
+	private static void rename(File source, File target) throws IOException {
+		if (!source.renameTo(target)) {
+			target.delete();
+			if (!source.renameTo(target)) {
+				throw new IOException("Could not rename " + source.getAbsolutePath() + " to " + target.getAbsolutePath());
+			}
+		}
+	}
+
+	/**
+	 * Finds the existing file with the expected output of a test method, under the given directory.
+	 *
+	 * @return the expected output file, or {@code null} if it doesn't exist.
+	 */
+	static File findExpectedOutputFile(String className, String testMethod, File targetDir) {
 		File dirOfClassResult = new File(targetDir.getAbsolutePath() + File.separatorChar + className);
-		if (!dirOfClassResult.exists()) {
-			dirOfClassResult.mkdir();
+		return findExpectedResultFile(dirOfClassResult.getAbsolutePath(), testMethod, fileLocator);
+	}
+
+	/**
+	 * Tests whether a file has exactly the given content.
+	 *
+	 * @return {@code true} if the file content is identical to the given output, otherwise {@code false}.
+	 */
+	static boolean hasContent(File file, String output, String charset) {
+		Reader content = null;
+		try {
+			content = newReader(openFile(file), charset);
+			return new OutputComparator(content, new StringReader(output), false).compare();
+		} catch (Exception e) {
+			return false;
+		} finally {
+			if (content != null) {
+				try {
+					content.close();
+				} catch (IOException e) {
+					//ignore
+				}
+			}
 		}
+	}
 
-		File targetFile = findExpectedResultFile(dirOfClassResult.getAbsolutePath(), testMethod, fileLocator);
-		if (targetFile == null) {
-			targetFile = new File(dirOfClassResult.getAbsolutePath() + File.separatorChar + testMethod + ".txt");
+	/**
+	 * Writes all content of a reader into an output stream, which is flushed but not closed.
+	 */
+	static void write(Reader input, OutputStream output, String encoding) throws IOException {
+		Writer out = newWriter(output, encoding);
+		char[] buffer = buffers.get();
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
 		}
+		out.flush();
+	}
 
+	static Writer newWriter(OutputStream output, String encoding) {
+		if (encoding == null) {
+			return new OutputStreamWriter(output);
+		}
 		try {
-			OutputStreamWriter out = new OutputStreamWriter(new FileOutputStream(targetFile), charset);
+			return new OutputStreamWriter(output, Charset.forName(encoding));
+		} catch (IllegalArgumentException e) {
 			try {
-				out.write(output);
-				System.out.println("\n>> Output dumped into file: " + targetFile.getAbsolutePath());
-			} finally {
-				out.close();
+				output.close();
+			} catch (IOException ex) {
+				//ignore
 			}
-		} catch (Exception e) {
-			throw new IllegalStateException("Could not write expected output of method '" + testMethod + "': error writing content to file: " + targetFile.getAbsolutePath(), e);
+			throw new IllegalArgumentException("Unsupported encoding: " + encoding, e);
 		}
 	}
 
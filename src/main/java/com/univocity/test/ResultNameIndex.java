@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.util.*;
+
+/**
+ * Index of the file names in a directory of expected outputs, used to find the expected output of a test method
+ * without scanning all names. Names are sorted by their lower case form, so all names starting with the name of a
+ * test method, in any case, are found in {@code O(log n)}.
+ *
+ * Digest files ({@code .sha256}) are not indexed.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class ResultNameIndex {
+
+	/**
+	 * Separates the lower case form of a name from the name itself in the keys of the index, and sorts before any
+	 * character that can follow a test method name.
+	 */
+	private static final char SEPARATOR = '\u0000';
+
+	private final Set<String> names = new HashSet<String>();
+	private final TreeMap<String, String> folded = new TreeMap<String, String>();
+
+	/**
+	 * Indexes the names of the files in a directory.
+	 *
+	 * @param names the names to index
+	 */
+	ResultNameIndex(Collection<String> names) {
+		for (String name : names) {
+			if (name.endsWith(OutputDigest.EXTENSION)) { //digest of an expected output
+				continue;
+			}
+			this.names.add(name);
+			folded.put(name.toLowerCase() + SEPARATOR + name, name);
+		}
+	}
+
+	/**
+	 * Indicates whether no names are indexed.
+	 *
+	 * @return {@code true} if the directory has no files other than digests.
+	 */
+	boolean isEmpty() {
+		return names.isEmpty();
+	}
+
+	/**
+	 * Finds the expected output of a test method. A name equal to the test method has precedence. Then, if names
+	 * are not case sensitive, a name equal to the test method ignoring case. Finally, the name of the test method
+	 * followed by an extension, which must match the case of the test method if names are case sensitive. If multiple
+	 * names qualify, the first one in alphabetical order is used.
+	 *
+	 * @param testMethod    name of the test method
+	 * @param caseSensitive whether file names are case sensitive
+	 *
+	 * @return the name of the expected output file, or {@code null} if not found.
+	 */
+	String find(String testMethod, boolean caseSensitive) {
+		if (names.contains(testMethod)) {
+			return testMethod;
+		}
+
+		String prefix = testMethod.toLowerCase();
+		if (!caseSensitive) {
+			String name = first(prefix + SEPARATOR, prefix + (char) (SEPARATOR + 1), testMethod, false);
+			if (name != null) { //result file has different case
+				return name;
+			}
+		}
+		return first(prefix + '.', prefix + (char) ('.' + 1), testMethod, caseSensitive); //result file has extension
+	}
+
+	private String first(String from, String to, String testMethod, boolean caseSensitive) {
+		String first = null;
+		for (String name : folded.subMap(from, to).values()) {
+			if (name.length() < testMethod.length() || !name.regionMatches(!caseSensitive, 0, testMethod, 0, testMethod.length())) {
+				continue;
+			}
+			if (name.length() > testMethod.length() && name.charAt(testMethod.length()) != '.') {
+				continue;
+			}
+			if (first == null || name.compareTo(first) < 0) {
+				first = name;
+			}
+		}
+		return first;
+	}
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+/**
+ * Walks through the stack of the current thread. On Java 9 and later, a version of this class based on
+ * {@code StackWalker} is loaded from {@code META-INF/versions/9} and the stack is only walked up to the frame found.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class StackFrames {
+
+	/**
+	 * Finds the first frame of the current stack accepted by the given matcher.
+	 *
+	 * @param matcher the matcher that selects frames
+	 *
+	 * @return the first frame {@link FrameMatcher.Match#FOUND}, or the outermost {@link FrameMatcher.Match#CANDIDATE}
+	 * frame if none was found. Returns {@code null} if no frame matches.
+	 */
+	static StackTraceElement find(FrameMatcher matcher) {
+		StackTraceElement candidate = null;
+		for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+			FrameMatcher.Match match = matcher.match(element.getClassName(), element.getMethodName());
+			if (match == FrameMatcher.Match.FOUND) {
+				return element;
+			} else if (match == FrameMatcher.Match.CANDIDATE) {
+				candidate = element;
+			}
+		}
+		return candidate;
+	}
+}
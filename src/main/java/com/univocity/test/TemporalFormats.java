@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Formats {@code java.time} values with {@code DateTimeFormatter}s cached by pattern and locale. This version is
+ * compiled for Java 6, so {@code java.time} is accessed through reflection, and is only available when running on
+ * Java 8. On Java 9 and later, a version of this class that uses {@code java.time} directly is loaded from
+ * {@code META-INF/versions/9}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class TemporalFormats {
+
+	private static final Class<?> temporalAccessor;
+	private static final Method ofPattern;
+	private static final Method formatTo;
+
+	static {
+		Class<?> type = null;
+		Method of = null;
+		Method format = null;
+		try {
+			type = Class.forName("java.time.temporal.TemporalAccessor");
+			Class<?> formatter = Class.forName("java.time.format.DateTimeFormatter");
+			of = formatter.getMethod("ofPattern", String.class, Locale.class);
+			format = formatter.getMethod("formatTo", type, Appendable.class);
+		} catch (Exception e) {
+			//running on Java 7 or earlier.
+			type = null;
+		}
+		temporalAccessor = type;
+		ofPattern = of;
+		formatTo = format;
+	}
+
+	private static final ConcurrentMap<Locale, ConcurrentMap<String, Object>> formatters = new ConcurrentHashMap<Locale, ConcurrentMap<String, Object>>();
+
+	/**
+	 * Indicates whether a value is a {@code java.time.temporal.TemporalAccessor}.
+	 */
+	static boolean isTemporal(Object value) {
+		return temporalAccessor != null && temporalAccessor.isInstance(value);
+	}
+
+	/**
+	 * Appends a {@code java.time} value formatted with the given pattern.
+	 *
+	 * @throws IOException if the output can't be appended to.
+	 */
+	static void format(Appendable out, Object value, String pattern, Locale locale) throws IOException {
+		try {
+			formatTo.invoke(getFormatter(pattern, locale), value, out);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException("Could not format " + value + " with pattern '" + pattern + "'", cause);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Could not format " + value + " with pattern '" + pattern + "'", e);
+		}
+	}
+
+	private static Object getFormatter(String pattern, Locale locale) throws InvocationTargetException, IllegalAccessException {
+		ConcurrentMap<String, Object> byPattern = formatters.get(locale);
+		if (byPattern == null) {
+			byPattern = new ConcurrentHashMap<String, Object>();
+			ConcurrentMap<String, Object> existing = formatters.putIfAbsent(locale, byPattern);
+			if (existing != null) {
+				byPattern = existing;
+			}
+		}
+		Object formatter = byPattern.get(pattern);
+		if (formatter == null) {
+			formatter = ofPattern.invoke(null, pattern, locale);
+			byPattern.put(pattern, formatter);
+		}
+		return formatter;
+	}
+}
@@ -15,11 +15,18 @@
  ******************************************************************************/
 package com.univocity.test;
 
-import java.text.*;
+import java.io.*;
+import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 public class TestUtils {
 
+	private static final int MISMATCH_WINDOW = 10;
+	private static final int MIN_ROWS_PER_TASK = 8192;
+	private static final int ROW_WINDOW = 3;
+
 	private static void assertLengths(Object[] expected, Object[] result) {
 		if (expected == null) {
 			if (result == null) {
@@ -45,6 +52,217 @@ public class TestUtils {
 		}
 	}
 
+	/**
+	 * Compares the rows of both iterables as they are read, as {@link #assertLinesAreEqual(Iterator, Iterator)} does.
+	 *
+	 * On failure, the message shows, for both expected and produced rows, up to 3 rows before the failing row, the
+	 * failing row itself (marked with {@code >}), and up to 3 rows after it.
+	 *
+	 * @param result   the rows produced. Can be {@code null}.
+	 * @param expected the rows expected. Can be {@code null}.
+	 * @param <T>      the type of element in each row
+	 */
+	public static <T> void assertLinesAreEqual(Iterable<T[]> result, Iterable<T[]> expected) {
+		if (expected == null || result == null) {
+			if (expected != result) {
+				throw new AssertionError("Outputs do not match: expected " + (expected == null ? "null" : "rows") + " but found " + (result == null ? "null" : "rows"));
+			}
+			return;
+		}
+		assertLinesAreEqual(result.iterator(), expected.iterator());
+	}
+
+	/**
+	 * Compares rows as they are read. Only the last few rows read are kept in memory, for the error message.
+	 *
+	 * On failure, the message shows, for both expected and produced rows, up to 3 rows before the failing row, the
+	 * failing row itself (marked with {@code >}), and up to 3 rows after it. If one side has more rows than the other,
+	 * the message shows the last 3 rows read and up to 3 of the remaining rows.
+	 *
+	 * @param result   the rows produced
+	 * @param expected the rows expected
+	 * @param <T>      the type of element in each row
+	 */
+	public static <T> void assertLinesAreEqual(Iterator<T[]> result, Iterator<T[]> expected) {
+		LinkedList<T[]> previousExpected = new LinkedList<T[]>();
+		LinkedList<T[]> previousResult = new LinkedList<T[]>();
+
+		long row = 0;
+		while (expected.hasNext() && result.hasNext()) {
+			T[] expectedLine = expected.next();
+			T[] resultLine = result.next();
+			try {
+				assertEquals(expectedLine, resultLine);
+			} catch (AssertionError e) {
+				previousExpected.add(expectedLine);
+				previousResult.add(resultLine);
+				throw new AssertionError("Rows not equal at row " + row + ". " + e.getMessage() + "\n" + printRows(row, true, previousExpected, expected, previousResult, result));
+			}
+
+			previousExpected.add(expectedLine);
+			previousResult.add(resultLine);
+			if (previousExpected.size() > ROW_WINDOW) {
+				previousExpected.removeFirst();
+				previousResult.removeFirst();
+			}
+			row++;
+		}
+
+		if (expected.hasNext()) {
+			throw new AssertionError("Number of rows do not match: expected more than " + row + " rows but found " + row + ".\n" + printRows(row, false, previousExpected, expected, previousResult, result));
+		} else if (result.hasNext()) {
+			throw new AssertionError("Number of rows do not match: expected " + row + " rows but found more.\n" + printRows(row, false, previousExpected, expected, previousResult, result));
+		}
+	}
+
+	private static <T> String printRows(long row, boolean rowRead, LinkedList<T[]> previousExpected, Iterator<T[]> expected, LinkedList<T[]> previousResult, Iterator<T[]> result) {
+		StringBuilder out = new StringBuilder();
+		out.append("Expected rows around row ").append(row).append(":\n");
+		printRows(out, row, rowRead, previousExpected, expected);
+		out.append("Produced rows around row ").append(row).append(":\n");
+		printRows(out, row, rowRead, previousResult, result);
+		return out.toString();
+	}
+
+	//prints the rows already read, which end at the given row (if already read) or right before it, followed by the next few rows.
+	private static <T> void printRows(StringBuilder out, long row, boolean rowRead, LinkedList<T[]> previous, Iterator<T[]> next) {
+		long index = (rowRead ? row + 1 : row) - previous.size();
+		for (T[] line : previous) {
+			printRow(out, index++, row, line);
+		}
+		for (int i = 0; i < ROW_WINDOW && next.hasNext(); i++) {
+			printRow(out, index++, row, next.next());
+		}
+		if (!next.hasNext()) {
+			out.append("  (end of rows)\n");
+		}
+	}
+
+	private static void printRow(StringBuilder out, long index, long row, Object line) {
+		out.append(index == row ? "> " : "  ").append(index).append(": ").append(printElement(line)).append('\n');
+	}
+
+	/**
+	 * Compares rows in parallel, using a private daemon thread pool with one thread per available processor. Small
+	 * inputs, or a single processor, fall back to {@link #assertLinesAreEqual(Object[][], Object[][])}.
+	 *
+	 * If rows differ, the lowest failing row is reported, with the same error the sequential version would throw.
+	 *
+	 * @param result   the rows produced
+	 * @param expected the rows expected
+	 * @param <T>      the type of element in each row
+	 */
+	public static <T> void assertLinesAreEqualInParallel(T[][] result, T[][] expected) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (threads == 1 || expected == null || expected.length < MIN_ROWS_PER_TASK * 2) {
+			assertLinesAreEqual(result, expected);
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "assert-lines-are-equal");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			assertLinesAreEqual(result, expected, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Compares ranges of rows as tasks submitted to the given executor, and waits for them to complete.
+	 *
+	 * If rows differ, the lowest failing row is reported, as in the sequential version: once a row fails, only rows
+	 * before it are still compared.
+	 *
+	 * The calling thread blocks until the tasks complete, so the executor must not be a bounded pool the caller is
+	 * itself running in: with all threads waiting on this method, the tasks it submits would never run.
+	 *
+	 * @param result   the rows produced
+	 * @param expected the rows expected
+	 * @param executor the executor that runs the comparisons. It is not shut down by this method.
+	 * @param <T>      the type of element in each row
+	 */
+	public static <T> void assertLinesAreEqual(final T[][] result, final T[][] expected, ExecutorService executor) {
+		assertLengths(result, expected);
+		if (expected == null) {
+			return;
+		}
+
+		final int rows = expected.length;
+		final AtomicInteger lowestFailure = new AtomicInteger(rows);
+		final Throwable[] failure = new Throwable[1];
+
+		int tasks = Math.max(1, Math.min(rows / MIN_ROWS_PER_TASK, Runtime.getRuntime().availableProcessors() * 4));
+		int rowsPerTask = (rows + tasks - 1) / tasks;
+		List<Future<?>> futures = new ArrayList<Future<?>>(tasks);
+		for (int start = 0; start < rows; start += rowsPerTask) {
+			final int from = start;
+			final int to = Math.min(rows, start + rowsPerTask);
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = from; i < to && i < lowestFailure.get(); i++) {
+						try {
+							assertEquals(expected[i], result[i]);
+						} catch (Throwable e) {
+							synchronized (failure) {
+								if (i < lowestFailure.get()) {
+									lowestFailure.set(i);
+									failure[0] = e;
+								}
+							}
+							return;
+						}
+					}
+				}
+			}));
+		}
+
+		boolean interrupted = false;
+		int start = 0;
+		for (Future<?> future : futures) {
+			if (start > lowestFailure.get()) {
+				future.cancel(false);
+			} else {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+					break;
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Error comparing rows", e.getCause());
+				} catch (CancellationException e) {
+					//rows after a failure are not compared.
+				}
+			}
+			start += rowsPerTask;
+		}
+		if (interrupted) {
+			for (Future<?> future : futures) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while comparing rows");
+		}
+
+		Throwable error;
+		synchronized (failure) {
+			error = failure[0];
+		}
+		if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		} else if (error instanceof Error) {
+			throw (Error) error;
+		} else if (error != null) {
+			throw new IllegalStateException(error);
+		}
+	}
+
 	public static <T> void assertEquals(T[] expected, T[] result) {
 		assertLengths(expected, result);
 
@@ -58,13 +276,187 @@ public class TestUtils {
 			}
 
 			if (result[i].getClass().isArray() && expected[i].getClass().isArray()) {
-				assertEquals((T[]) expected[i], (T[]) result[i]);
+				assertArraysEqual(expected[i], result[i]);
 			} else if (!result[i].equals(expected[i])) {
 				fail(expected, result, i);
 			}
 		}
 	}
 
+	private static void assertArraysEqual(Object expected, Object result) {
+		if (expected instanceof Object[] && result instanceof Object[]) {
+			assertEquals((Object[]) expected, (Object[]) result);
+		} else if (expected instanceof int[] && result instanceof int[]) {
+			assertEquals((int[]) expected, (int[]) result);
+		} else if (expected instanceof long[] && result instanceof long[]) {
+			assertEquals((long[]) expected, (long[]) result);
+		} else if (expected instanceof double[] && result instanceof double[]) {
+			assertEquals((double[]) expected, (double[]) result);
+		} else if (expected instanceof float[] && result instanceof float[]) {
+			assertEquals((float[]) expected, (float[]) result);
+		} else if (expected instanceof short[] && result instanceof short[]) {
+			assertEquals((short[]) expected, (short[]) result);
+		} else if (expected instanceof byte[] && result instanceof byte[]) {
+			assertEquals((byte[]) expected, (byte[]) result);
+		} else if (expected instanceof char[] && result instanceof char[]) {
+			assertEquals((char[]) expected, (char[]) result);
+		} else if (expected instanceof boolean[] && result instanceof boolean[]) {
+			assertEquals((boolean[]) expected, (boolean[]) result);
+		} else {
+			throw new AssertionError("Arrays not equal. Expected " + expected.getClass().getSimpleName() + " " + printElement(expected)
+					+ " but got " + result.getClass().getSimpleName() + " " + printElement(result));
+		}
+	}
+
+	public static void assertEquals(final int[] expected, final int[] result) {
+		if (!Arrays.equals(expected, result)) {
+			failAtFirstMismatch(expected, result, new ElementMatcher() {
+				@Override
+				boolean matches(int i) {
+					return expected[i] == result[i];
+				}
+			});
+		}
+	}
+
+	public static void assertEquals(final long[] expected, final long[] result) {
+		if (!Arrays.equals(expected, result)) {
+			failAtFirstMismatch(expected, result, new ElementMatcher() {
+				@Override
+				boolean matches(int i) {
+					return expected[i] == result[i];
+				}
+			});
+		}
+	}
+
+	public static void assertEquals(final short[] expected, final short[] result) {
+		if (!Arrays.equals(expected, result)) {
+			failAtFirstMismatch(expected, result, new ElementMatcher() {
+				@Override
+				boolean matches(int i) {
+					return expected[i] == result[i];
+				}
+			});
+		}
+	}
+
+	public static void assertEquals(final byte[] expected, final byte[] result) {
+		if (!Arrays.equals(expected, result)) {
+			failAtFirstMismatch(expected, result, new ElementMatcher() {
+				@Override
+				boolean matches(int i) {
+					return expected[i] == result[i];
+				}
+			});
+		}
+	}
+
+	public static void assertEquals(final char[] expected, final char[] result) {
+		if (!Arrays.equals(expected, result)) {
+			failAtFirstMismatch(expected, result, new ElementMatcher() {
+				@Override
+				boolean matches(int i) {
+					return expected[i] == result[i];
+				}
+			});
+		}
+	}
+
+	public static void assertEquals(final boolean[] expected, final boolean[] result) {
+		if (!Arrays.equals(expected, result)) {
+			failAtFirstMismatch(expected, result, new ElementMatcher() {
+				@Override
+				boolean matches(int i) {
+					return expected[i] == result[i];
+				}
+			});
+		}
+	}
+
+	//same semantics as Arrays.equals: NaN equals NaN, 0.0 differs from -0.0
+	public static void assertEquals(final double[] expected, final double[] result) {
+		if (!Arrays.equals(expected, result)) {
+			failAtFirstMismatch(expected, result, new ElementMatcher() {
+				@Override
+				boolean matches(int i) {
+					return Double.doubleToLongBits(expected[i]) == Double.doubleToLongBits(result[i]);
+				}
+			});
+		}
+	}
+
+	public static void assertEquals(final float[] expected, final float[] result) {
+		if (!Arrays.equals(expected, result)) {
+			failAtFirstMismatch(expected, result, new ElementMatcher() {
+				@Override
+				boolean matches(int i) {
+					return Float.floatToIntBits(expected[i]) == Float.floatToIntBits(result[i]);
+				}
+			});
+		}
+	}
+
+	private static abstract class ElementMatcher {
+		abstract boolean matches(int i);
+	}
+
+	//only the elements around the mismatch are printed, as primitive arrays are usually large.
+	private static void failAtFirstMismatch(Object expected, Object result, ElementMatcher elements) {
+		if (expected == null || result == null) {
+			throw new AssertionError("Outputs do not match: expected " + printRegion(expected, 0) + " but found " + printRegion(result, 0));
+		}
+		int expectedLength = Array.getLength(expected);
+		int resultLength = Array.getLength(result);
+		int length = Math.min(expectedLength, resultLength);
+		int position = 0;
+		while (position < length && elements.matches(position)) {
+			position++;
+		}
+
+		String difference;
+		if (position < length) {
+			difference = "Element at position " + position + " should be " + printValue(Array.get(expected, position)) + " but got " + printValue(Array.get(result, position)) + ".";
+		} else {
+			difference = "Expected " + expectedLength + " elements but got " + resultLength + ".";
+		}
+		throw new AssertionError("Arrays not equal. " + difference + "\n"
+				+ "Outputs do not match around position " + position + ": expected " + printRegion(expected, position) + " but found " + printRegion(result, position));
+	}
+
+	private static String printRegion(Object array, int position) {
+		if (array == null) {
+			return "null";
+		}
+		int length = Array.getLength(array);
+		int from = Math.max(0, position - MISMATCH_WINDOW);
+		int to = Math.min(length, position + MISMATCH_WINDOW + 1);
+
+		StringBuilder out = new StringBuilder();
+		out.append('[');
+		if (from > 0) {
+			out.append("...(").append(from).append(" elements),");
+		}
+		for (int i = from; i < to; i++) {
+			if (i > from) {
+				out.append(',');
+			}
+			out.append(printValue(Array.get(array, i)));
+		}
+		if (to < length) {
+			out.append(",...(").append(length - to).append(" elements)");
+		}
+		out.append(']');
+		return out.toString();
+	}
+
+	private static String printValue(Object value) {
+		if (value instanceof Character) {
+			return "'" + value + "'";
+		}
+		return String.valueOf(value);
+	}
+
 	private static <T> void fail(T[] expected, T[] result, int position) {
 		throw new AssertionError(
 				"Arrays not equal. Element at position " + position + " should be " + printElement(expected[position]) + " but got " + printElement(result[position]) + ".\n"
@@ -79,8 +471,11 @@ public class TestUtils {
 		if (o == null) {
 			return "null";
 		}
+		if (o instanceof Object[]) {
+			return printArrayElements((Object[]) o);
+		}
 		if (o.getClass().isArray()) {
-			return printArrayElements((T[]) o);
+			return printPrimitiveArray(o);
 		}
 		return String.valueOf(o);
 	}
@@ -117,9 +512,11 @@ public class TestUtils {
 			} else {
 				if (value instanceof CharSequence || value instanceof Character) {
 					out.append('\'').append(value).append('\'');
-				} else if (value.getClass().isArray()) {
+				} else if (value instanceof Object[]) {
 					out.append('\n');
-					printArrayElements(out, (T[]) value, nestingLevel + 1);
+					printArrayElements(out, (Object[]) value, nestingLevel + 1);
+				} else if (value.getClass().isArray()) {
+					out.append(printPrimitiveArray(value));
 				} else {
 					out.append(value);
 				}
@@ -129,6 +526,20 @@ public class TestUtils {
 		out.append(']');
 	}
 
+	private static String printPrimitiveArray(Object array) {
+		int length = Array.getLength(array);
+		StringBuilder out = new StringBuilder();
+		out.append('[');
+		for (int i = 0; i < length; i++) {
+			if (i > 0) {
+				out.append(',');
+			}
+			out.append(printValue(Array.get(array, i)));
+		}
+		out.append(']');
+		return out.toString();
+	}
+
 	public static <T> void assertEquals(Collection<T> result, T[] expected) {
 		assertEquals(result.toArray(), expected);
 	}
@@ -150,8 +561,121 @@ public class TestUtils {
 			return "null";
 		}
 
-		SimpleDateFormat formatter = new SimpleDateFormat(format, Locale.ENGLISH);
-		String formatted = formatter.format(date);
-		return formatted;
+		return format(new StringBuilder(), date, format, Locale.ENGLISH).toString();
+	}
+
+	/**
+	 * Formats a date, calendar, number or {@code java.time} value into the given output, using formatters cached by
+	 * pattern and locale. Calendars are formatted in their own time zone, dates in the default time zone.
+	 *
+	 * @param out     the output
+	 * @param value   the value to format. {@code null} is appended as {@code "null"}.
+	 * @param pattern a {@code SimpleDateFormat} pattern for dates and calendars, a {@code DecimalFormat} pattern for
+	 *                numbers, or a {@code DateTimeFormatter} pattern for {@code java.time} values.
+	 * @param <A>     the type of output
+	 *
+	 * @return the given output.
+	 */
+	public static <A extends Appendable> A format(A out, Object value, String pattern) {
+		return format(out, value, pattern, Locale.ENGLISH);
+	}
+
+	/**
+	 * Formats a value as {@link #format(Appendable, Object, String)} does, using the given locale.
+	 *
+	 * @param out     the output
+	 * @param value   the value to format
+	 * @param pattern the pattern to use
+	 * @param locale  the locale of the formatter
+	 * @param <A>     the type of output
+	 *
+	 * @return the given output.
+	 */
+	public static <A extends Appendable> A format(A out, Object value, String pattern, Locale locale) {
+		try {
+			FormatterCache.format(out, value, pattern, locale);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not append formatted value " + value, e);
+		}
+		return out;
+	}
+
+	/**
+	 * Formats all values in sequence into the given output, as {@link #format(Appendable, Object, String)} does,
+	 * appending the separator between them.
+	 *
+	 * The same pattern is applied to every value, whatever its type: a number formatted with a date pattern such as
+	 * {@code "yyyy"} is printed as {@code "yyyy1234"}.
+	 *
+	 * @param out       the output
+	 * @param values    the values to format
+	 * @param pattern   the pattern used to format each value
+	 * @param separator appended between values. Can be {@code null}.
+	 * @param <A>       the type of output
+	 *
+	 * @return the given output.
+	 */
+	public static <A extends Appendable> A formatAll(A out, Iterable<?> values, String pattern, CharSequence separator) {
+		return formatAll(out, values, pattern, Locale.ENGLISH, separator);
+	}
+
+	/**
+	 * Formats all values as {@link #formatAll(Appendable, Iterable, String, CharSequence)} does, using the given locale.
+	 *
+	 * @param out       the output
+	 * @param values    the values to format
+	 * @param pattern   the pattern used to format each value
+	 * @param locale    the locale of the formatter
+	 * @param separator appended between values. Can be {@code null}.
+	 * @param <A>       the type of output
+	 *
+	 * @return the given output.
+	 */
+	public static <A extends Appendable> A formatAll(A out, Iterable<?> values, String pattern, Locale locale, CharSequence separator) {
+		try {
+			boolean first = true;
+			for (Object value : values) {
+				if (!first && separator != null) {
+					out.append(separator);
+				}
+				first = false;
+				FormatterCache.format(out, value, pattern, locale);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not append formatted values", e);
+		}
+		return out;
+	}
+
+	/**
+	 * Formats all values of an array as {@link #formatAll(Appendable, Iterable, String, CharSequence)} does.
+	 *
+	 * @param out       the output
+	 * @param values    the values to format
+	 * @param pattern   the pattern used to format each value
+	 * @param separator appended between values. Can be {@code null}.
+	 * @param <A>       the type of output
+	 *
+	 * @return the given output.
+	 */
+	public static <A extends Appendable> A formatAll(A out, Object[] values, String pattern, CharSequence separator) {
+		return formatAll(out, Arrays.asList(values), pattern, Locale.ENGLISH, separator);
+	}
+
+	/**
+	 * Formats all values of an array as {@link #formatAll(Appendable, Iterable, String, CharSequence)} does, using the
+	 * given locale.
+	 *
+	 * @param out       the output
+	 * @param values    the values to format
+	 * @param pattern   the pattern used to format each value
+	 * @param locale    the locale of the formatter
+	 * @param separator appended between values. Can be {@code null}.
+	 * @param <A>       the type of output
+	 *
+	 * @return the given output.
+	 */
+	public static <A extends Appendable> A formatAll(A out, Object[] values, String pattern, Locale locale, CharSequence separator) {
+		return formatAll(out, Arrays.asList(values), pattern, locale, separator);
 	}
 }
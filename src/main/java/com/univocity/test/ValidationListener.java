@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+/**
+ * Receives the {@link ValidationMetrics} of each output validated by an {@link OutputTester}.
+ *
+ * Listeners are notified in the thread that ran the validation, after it completes and regardless of whether the
+ * outputs match, so implementations must be thread-safe if tests run in parallel.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see ValidationStatistics
+ */
+public interface ValidationListener {
+
+	/**
+	 * Notifies the completion of the validation of an output.
+	 *
+	 * @param metrics the execution times and sizes measured during the validation.
+	 */
+	void validated(ValidationMetrics metrics);
+}
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+/**
+ * Execution times and sizes measured during the validation of a single output, reported to
+ * {@link ValidationListener}s.
+ *
+ * Time is charged to one {@link ValidationPhase} at a time: when a phase starts within another (e.g. the expected
+ * output is read while it is compared), the time of the outer phase stops being counted until the inner phase ends.
+ * The times of all phases therefore add up to the total time of the validation.
+ *
+ * Outputs written in background threads (see {@link OutputTester#setBatchUpdates(boolean)} and
+ * {@link OutputTester#setAsynchronousDumps(boolean)}) are not measured, only the time taken to queue them.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public final class ValidationMetrics {
+
+	private static final ValidationPhase[] phases = ValidationPhase.values();
+	private static final ThreadLocal<ValidationMetrics> current = new ThreadLocal<ValidationMetrics>();
+
+	private final ValidationMetrics previous;
+	private final long[] times = new long[phases.length];
+	private ValidationPhase phase;
+	private long phaseStart;
+
+	private String className;
+	private String testMethod;
+	private boolean passed;
+	private long bytesRead;
+	private long bytesWritten;
+	private long producedOutputLength;
+	private long expectedOutputLength;
+
+	private ValidationMetrics(ValidationMetrics previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * Starts measuring a validation in the current thread, beginning with {@link ValidationPhase#RESOLVE_CALLER}.
+	 *
+	 * @return the metrics of the validation, which must be completed with {@link #finish()}.
+	 */
+	static ValidationMetrics start() {
+		ValidationMetrics metrics = new ValidationMetrics(current.get());
+		current.set(metrics);
+		metrics.switchTo(ValidationPhase.RESOLVE_CALLER);
+		return metrics;
+	}
+
+	/**
+	 * Returns the metrics of the validation running in the current thread.
+	 *
+	 * @return the current metrics, or {@code null} if no validation is being measured.
+	 */
+	static ValidationMetrics current() {
+		return current.get();
+	}
+
+	/**
+	 * Starts charging time to the given phase, if a validation is being measured in the current thread.
+	 *
+	 * @param phase the phase that is starting
+	 *
+	 * @return the phase that was running, to be restored with {@link #exit(ValidationPhase)}.
+	 */
+	static ValidationPhase enter(ValidationPhase phase) {
+		ValidationMetrics metrics = current.get();
+		return metrics == null ? null : metrics.switchTo(phase);
+	}
+
+	/**
+	 * Ends the phase started with {@link #enter(ValidationPhase)}.
+	 *
+	 * @param previous the phase returned by {@link #enter(ValidationPhase)}
+	 */
+	static void exit(ValidationPhase previous) {
+		ValidationMetrics metrics = current.get();
+		if (metrics != null) {
+			metrics.switchTo(previous);
+		}
+	}
+
+	/**
+	 * Charges the time elapsed since the last switch to the running phase, and starts charging time to another.
+	 *
+	 * @param phase the phase to charge time to from now on, or {@code null} to stop measuring time.
+	 *
+	 * @return the phase that was running.
+	 */
+	ValidationPhase switchTo(ValidationPhase phase) {
+		long now = System.nanoTime();
+		ValidationPhase previous = this.phase;
+		if (previous != null) {
+			times[previous.ordinal()] += now - phaseStart;
+		}
+		this.phase = phase;
+		this.phaseStart = now;
+		return previous;
+	}
+
+	/**
+	 * Records the test method that produced the output once it is identified, and starts charging time to
+	 * {@link ValidationPhase#COMPARE}.
+	 */
+	void validating(String className, String testMethod) {
+		this.className = className;
+		this.testMethod = testMethod;
+		switchTo(ValidationPhase.COMPARE);
+	}
+
+	/**
+	 * Stops measuring time, after the validation completed without errors.
+	 */
+	void passed() {
+		switchTo(null);
+		passed = true;
+	}
+
+	/**
+	 * Stops measuring the validation running in the current thread.
+	 *
+	 * @return {@code true} if the test method that produced the output was identified, i.e. there is something to report.
+	 */
+	boolean finish() {
+		switchTo(null);
+		if (previous == null) {
+			current.remove();
+		} else {
+			current.set(previous);
+		}
+		return testMethod != null;
+	}
+
+	void addBytesRead(long bytes) {
+		bytesRead += bytes;
+	}
+
+	void addBytesWritten(long bytes) {
+		bytesWritten += bytes;
+	}
+
+	void producedOutputRead(long length) {
+		if (length > producedOutputLength) {
+			producedOutputLength = length;
+		}
+	}
+
+	void expectedOutputRead(long length) {
+		if (length > expectedOutputLength) {
+			expectedOutputLength = length;
+		}
+	}
+
+	/**
+	 * Returns the simple name of the test class that produced the output.
+	 *
+	 * @return the test class name.
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * Returns the name of the test method that produced the output, including the arguments used to identify its
+	 * expected output, if any.
+	 *
+	 * @return the test method name.
+	 */
+	public String getTestMethod() {
+		return testMethod;
+	}
+
+	/**
+	 * Returns a flag indicating whether the validation completed without errors.
+	 *
+	 * @return {@code true} if the produced output matched the expected output (or was used to update it), otherwise {@code false}.
+	 */
+	public boolean isPassed() {
+		return passed;
+	}
+
+	/**
+	 * Returns the time spent on a phase of the validation.
+	 *
+	 * @param phase the phase of the validation
+	 *
+	 * @return the time spent on the given phase, in nanoseconds.
+	 */
+	public long getTime(ValidationPhase phase) {
+		return times[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the time taken by the validation.
+	 *
+	 * @return the sum of the times of all phases, in nanoseconds.
+	 */
+	public long getTotalTime() {
+		long total = 0;
+		for (long time : times) {
+			total += time;
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the number of bytes read from expected output files, which includes the bytes read to describe any
+	 * differences found. Compressed files count their uncompressed size.
+	 *
+	 * @return the number of bytes read.
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Returns the number of bytes written into expected output files, or into temporary files when the produced output
+	 * doesn't match the expected output.
+	 *
+	 * @return the number of bytes written.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Returns the length of the produced output.
+	 *
+	 * @return the number of characters of the produced output, or of its part that was read if the validation stopped early.
+	 */
+	public long getProducedOutputLength() {
+		return producedOutputLength;
+	}
+
+	/**
+	 * Returns the length of the part of the expected output that was read. The validation stops reading the expected
+	 * output at the first difference, and doesn't read it at all if its digest matches the digest of the produced output.
+	 *
+	 * @return the number of characters of the expected output that were read.
+	 */
+	public long getExpectedOutputLength() {
+		return expectedOutputLength;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		out.append(className).append('.').append(testMethod).append(passed ? " passed in " : " failed in ");
+		out.append(getTotalTime() / 1000).append("us (");
+		for (int i = 0; i < phases.length; i++) {
+			if (i > 0) {
+				out.append(", ");
+			}
+			out.append(phases[i]).append(": ").append(times[i] / 1000).append("us");
+		}
+		out.append("). Bytes read: ").append(bytesRead);
+		out.append(", bytes written: ").append(bytesWritten);
+		out.append(", produced output length: ").append(producedOutputLength);
+		out.append(", expected output length: ").append(expectedOutputLength);
+		return out.toString();
+	}
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+/**
+ * The phases of the validation of an output, whose execution times are reported to {@link ValidationListener}s
+ * through {@link ValidationMetrics}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public enum ValidationPhase {
+
+	/**
+	 * Identification of the test method that produced the output, from the stack trace of the current thread.
+	 */
+	RESOLVE_CALLER("resolve caller"),
+
+	/**
+	 * Search for the expected output file, and the stored digest of its content.
+	 */
+	LOCATE("locate"),
+
+	/**
+	 * Reading and decoding of the characters of the expected and produced outputs.
+	 */
+	READ("read"),
+
+	/**
+	 * Conversion of the line separators of the outputs into {@code \n}.
+	 */
+	NORMALIZE("normalize"),
+
+	/**
+	 * Comparison of the produced output against the expected output, including the computation of digests and the
+	 * description of any differences found.
+	 */
+	COMPARE("compare"),
+
+	/**
+	 * Writing of the produced output into the expected output file, or into a temporary file when it doesn't match.
+	 */
+	WRITE("dump/update");
+
+	private final String description;
+
+	ValidationPhase(String description) {
+		this.description = description;
+	}
+
+	@Override
+	public String toString() {
+		return description;
+	}
+}
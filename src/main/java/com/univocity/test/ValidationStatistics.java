@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A {@link ValidationListener} that aggregates the {@link ValidationMetrics} of all validations per test class and
+ * per test method, and reports the slowest ones. A single instance can be shared by all {@link OutputTester}s, and
+ * by tests running in parallel:
+ *
+ * <pre>{@code
+ * private static final ValidationStatistics statistics = new ValidationStatistics().printReportAtExit(10);
+ *
+ * public MyTest() {
+ *     super("examples/expectedOutputs");
+ *     addValidationListener(statistics);
+ * }
+ * }</pre>
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public class ValidationStatistics implements ValidationListener {
+
+	private static final ValidationPhase[] phases = ValidationPhase.values();
+
+	private final Counters total = new Counters("all");
+	private final ConcurrentMap<String, Counters> classes = new ConcurrentHashMap<String, Counters>();
+	private final ConcurrentMap<String, Counters> methods = new ConcurrentHashMap<String, Counters>();
+
+	@Override
+	public void validated(ValidationMetrics metrics) {
+		total.add(metrics);
+		getCounters(classes, metrics.getClassName()).add(metrics);
+		getCounters(methods, metrics.getClassName() + '.' + metrics.getTestMethod()).add(metrics);
+	}
+
+	private static Counters getCounters(ConcurrentMap<String, Counters> map, String key) {
+		Counters counters = map.get(key);
+		if (counters == null) {
+			counters = new Counters(key);
+			Counters existing = map.putIfAbsent(key, counters);
+			if (existing != null) {
+				counters = existing;
+			}
+		}
+		return counters;
+	}
+
+	/**
+	 * Returns the number of validations measured so far.
+	 *
+	 * @return the number of validations reported to this listener.
+	 */
+	public long getValidationCount() {
+		return total.count.get();
+	}
+
+	/**
+	 * Returns the time spent on a phase of all validations measured so far.
+	 *
+	 * @param phase the phase of the validations
+	 *
+	 * @return the total time spent on the given phase, in nanoseconds.
+	 */
+	public long getTotalTime(ValidationPhase phase) {
+		return total.times.get(phase.ordinal());
+	}
+
+	/**
+	 * Discards all statistics collected so far.
+	 */
+	public void reset() {
+		classes.clear();
+		methods.clear();
+		total.reset();
+	}
+
+	/**
+	 * Registers a shutdown hook that prints the report of the statistics collected into the standard output when the
+	 * JVM exits.
+	 *
+	 * @param topN the number of slowest test classes and methods to list.
+	 *
+	 * @return this instance, for convenience.
+	 */
+	public ValidationStatistics printReportAtExit(final int topN) {
+		Runtime.getRuntime().addShutdownHook(new Thread("validation-statistics-report") {
+			@Override
+			public void run() {
+				printReport(topN);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Prints the report of the statistics collected so far into the standard output.
+	 *
+	 * @param topN the number of slowest test classes and methods to list.
+	 */
+	public void printReport(int topN) {
+		System.out.println(getReport(topN));
+	}
+
+	/**
+	 * Returns a report of the statistics collected so far: the total time spent on each phase, the amount of data read
+	 * and written, and the test classes and methods whose validations took the longest.
+	 *
+	 * @param topN the number of slowest test classes and methods to list.
+	 *
+	 * @return the report, ready to be printed.
+	 */
+	public String getReport(int topN) {
+		StringBuilder out = new StringBuilder();
+		long count = total.count.get();
+		out.append("\n>> Validation statistics: ").append(count).append(" validation(s)");
+		long failures = total.failures.get();
+		if (failures > 0) {
+			out.append(", ").append(failures).append(" failed");
+		}
+		out.append(", ").append(millis(total.time.get())).append(" ms\n");
+		if (count == 0) {
+			return out.toString();
+		}
+
+		out.append("   Time per phase: ").append(formatPhases(total)).append('\n');
+		out.append("   Data: ").append(total.bytesRead.get()).append(" bytes read, ");
+		out.append(total.bytesWritten.get()).append(" bytes written, ");
+		out.append(total.producedOutputLength.get()).append(" characters produced, ");
+		out.append(total.expectedOutputLength.get()).append(" characters expected\n");
+
+		appendSlowest(out, "test classes", classes, topN);
+		appendSlowest(out, "test methods", methods, topN);
+		return out.toString();
+	}
+
+	private static void appendSlowest(StringBuilder out, String description, ConcurrentMap<String, Counters> map, int topN) {
+		List<Counters> slowest = new ArrayList<Counters>(map.values());
+		Collections.sort(slowest, new Comparator<Counters>() {
+			@Override
+			public int compare(Counters o1, Counters o2) {
+				long t1 = o1.time.get();
+				long t2 = o2.time.get();
+				return t1 < t2 ? 1 : t1 == t2 ? o1.name.compareTo(o2.name) : -1;
+			}
+		});
+		if (slowest.size() > topN) {
+			slowest = slowest.subList(0, topN);
+		}
+		if (slowest.isEmpty()) {
+			return;
+		}
+
+		out.append(">> Slowest ").append(description).append(":\n");
+		for (Counters counters : slowest) {
+			long count = counters.count.get();
+			out.append("   ").append(millis(counters.time.get())).append(" ms ");
+			out.append("(").append(count).append(count == 1 ? " validation" : " validations");
+			out.append(", max ").append(millis(counters.maxTime.get())).append(" ms) ");
+			out.append(counters.name).append(" - ").append(formatPhases(counters)).append('\n');
+		}
+	}
+
+	private static String formatPhases(Counters counters) {
+		StringBuilder out = new StringBuilder();
+		for (int i = 0; i < phases.length; i++) {
+			if (i > 0) {
+				out.append(", ");
+			}
+			out.append(phases[i]).append(": ").append(millis(counters.times.get(i))).append(" ms");
+		}
+		return out.toString();
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.ENGLISH, "%.3f", nanos / 1000000.0);
+	}
+
+	private static final class Counters {
+		final String name;
+		final AtomicLong count = new AtomicLong();
+		final AtomicLong failures = new AtomicLong();
+		final AtomicLong time = new AtomicLong();
+		final AtomicLong maxTime = new AtomicLong();
+		final AtomicLongArray times = new AtomicLongArray(phases.length);
+		final AtomicLong bytesRead = new AtomicLong();
+		final AtomicLong bytesWritten = new AtomicLong();
+		final AtomicLong producedOutputLength = new AtomicLong();
+		final AtomicLong expectedOutputLength = new AtomicLong();
+
+		Counters(String name) {
+			this.name = name;
+		}
+
+		void add(ValidationMetrics metrics) {
+			count.incrementAndGet();
+			if (!metrics.isPassed()) {
+				failures.incrementAndGet();
+			}
+			long total = metrics.getTotalTime();
+			time.addAndGet(total);
+			long max;
+			while (total > (max = maxTime.get()) && !maxTime.compareAndSet(max, total)) {
+				//retry
+			}
+			for (int i = 0; i < phases.length; i++) {
+				long phaseTime = metrics.getTime(phases[i]);
+				if (phaseTime != 0) {
+					times.addAndGet(i, phaseTime);
+				}
+			}
+			bytesRead.addAndGet(metrics.getBytesRead());
+			bytesWritten.addAndGet(metrics.getBytesWritten());
+			producedOutputLength.addAndGet(metrics.getProducedOutputLength());
+			expectedOutputLength.addAndGet(metrics.getExpectedOutputLength());
+		}
+
+		void reset() {
+			count.set(0);
+			failures.set(0);
+			time.set(0);
+			maxTime.set(0);
+			for (int i = 0; i < phases.length; i++) {
+				times.set(i, 0);
+			}
+			bytesRead.set(0);
+			bytesWritten.set(0);
+			producedOutputLength.set(0);
+			expectedOutputLength.set(0);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.util.*;
+
+/**
+ * Walks through the stack of the current thread lazily with a {@link StackWalker}, so frames beyond the one
+ * found are never materialized.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class StackFrames {
+
+	private static final StackWalker walker = StackWalker.getInstance();
+
+	/**
+	 * Finds the first frame of the current stack accepted by the given matcher.
+	 *
+	 * @param matcher the matcher that selects frames
+	 *
+	 * @return the first frame {@link FrameMatcher.Match#FOUND}, or the outermost {@link FrameMatcher.Match#CANDIDATE}
+	 * frame if none was found. Returns {@code null} if no frame matches.
+	 */
+	static StackTraceElement find(FrameMatcher matcher) {
+		return walker.walk(frames -> {
+			StackWalker.StackFrame candidate = null;
+			Iterator<StackWalker.StackFrame> it = frames.iterator();
+			while (it.hasNext()) {
+				StackWalker.StackFrame frame = it.next();
+				FrameMatcher.Match match = matcher.match(frame.getClassName(), frame.getMethodName());
+				if (match == FrameMatcher.Match.FOUND) {
+					return frame.toStackTraceElement();
+				} else if (match == FrameMatcher.Match.CANDIDATE) {
+					candidate = frame;
+				}
+			}
+			return candidate == null ? null : candidate.toStackTraceElement();
+		});
+	}
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import java.io.*;
+import java.time.*;
+import java.time.format.*;
+import java.time.temporal.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Formats {@code java.time} values with {@link DateTimeFormatter}s cached by pattern and locale. Formatters are
+ * immutable, so they are shared by all threads.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class TemporalFormats {
+
+	private static final ConcurrentMap<Locale, ConcurrentMap<String, DateTimeFormatter>> formatters = new ConcurrentHashMap<>();
+
+	/**
+	 * Indicates whether a value is a {@link TemporalAccessor}.
+	 */
+	static boolean isTemporal(Object value) {
+		return value instanceof TemporalAccessor;
+	}
+
+	/**
+	 * Appends a {@code java.time} value formatted with the given pattern.
+	 *
+	 * @throws IOException if the output can't be appended to.
+	 */
+	static void format(Appendable out, Object value, String pattern, Locale locale) throws IOException {
+		DateTimeFormatter formatter = formatters.computeIfAbsent(locale, l -> new ConcurrentHashMap<>())
+				.computeIfAbsent(pattern, p -> DateTimeFormatter.ofPattern(p, locale));
+		try {
+			formatter.formatTo((TemporalAccessor) value, out);
+		} catch (DateTimeException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.junit.*;
+
+import java.io.*;
+import java.nio.charset.*;
+
+/**
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public class DecodingOutputStreamTest extends OutputTester {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	public DecodingOutputStreamTest() {
+		super("expectedOutputs", "UTF-8");
+	}
+
+	@Test
+	public void writesByteByByte() throws IOException {
+		OutputStream out = outputStream(UTF_8);
+		for (byte b : "héllo\nwörld".getBytes(UTF_8)) {
+			out.write(b);
+		}
+		validate();
+	}
+
+	@Test
+	public void writesByteArrays() throws IOException {
+		OutputStream out = outputStream(UTF_8);
+		byte[] bytes = "héllo\nwörld".getBytes(UTF_8);
+		out.write(bytes, 0, 2);
+		out.write(bytes, 2, bytes.length - 2);
+		validate();
+	}
+}
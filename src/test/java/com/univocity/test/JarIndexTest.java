@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.junit.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.jar.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public class JarIndexTest {
+
+	private static final String METHOD = "expected/Test/method.txt";
+	private static final String OTHER = "expected/Test/other.txt";
+	private static final String MARKER = Marker.class.getName().replace('.', '/') + ".class";
+
+	/**
+	 * Packaged in the test jars to locate them from a class.
+	 */
+	public static class Marker {
+	}
+
+	private static File createJar(File file, boolean directoryEntries, String... entries) throws IOException {
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+		try {
+			Set<String> directories = new HashSet<String>();
+			for (int i = 0; i < entries.length; i += 2) {
+				String name = entries[i];
+				if (directoryEntries) {
+					for (int slash = name.indexOf('/'); slash != -1; slash = name.indexOf('/', slash + 1)) {
+						String directory = name.substring(0, slash + 1);
+						if (directories.add(directory)) {
+							out.putNextEntry(new JarEntry(directory));
+							out.closeEntry();
+						}
+					}
+				}
+				out.putNextEntry(new JarEntry(name));
+				out.write(entries[i + 1].getBytes("UTF-8"));
+				out.closeEntry();
+			}
+			if (!directoryEntries) {
+				out.putNextEntry(new JarEntry(MARKER));
+				InputStream marker = JarIndexTest.class.getClassLoader().getResourceAsStream(MARKER);
+				try {
+					byte[] buffer = new byte[4096];
+					for (int read; (read = marker.read(buffer)) != -1; ) {
+						out.write(buffer, 0, read);
+					}
+				} finally {
+					marker.close();
+				}
+				out.closeEntry();
+			}
+		} finally {
+			out.close();
+		}
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static File createJar(boolean directoryEntries, String... entries) throws IOException {
+		return createJar(File.createTempFile("jar-index", ".jar"), directoryEntries, entries);
+	}
+
+	//writes a new jar and moves it over the given one, so streams still open on the old jar keep reading it.
+	private static void replaceJar(File jar, String... entries) throws IOException {
+		File replacement = createJar(File.createTempFile("jar-index", ".jar", jar.getParentFile()), true, entries);
+		replacement.setLastModified(jar.lastModified() + 10000);
+		Assume.assumeTrue("Jar file can't be replaced while open", replacement.renameTo(jar));
+	}
+
+	private static URL entry(File jar, String name) throws MalformedURLException {
+		return new URL("jar:" + jar.toURI().toURL() + "!/" + name);
+	}
+
+	private static ClassPathResourceReader reader(final ClassLoader classLoader, final Class<?> referenceClass) {
+		return new ClassPathResourceReader() {
+			@Override
+			protected ClassLoader getClassLoader() {
+				return classLoader;
+			}
+
+			@Override
+			protected Class<?> getReferenceClass() {
+				return referenceClass;
+			}
+
+			@Override
+			public InputStream open(String path) {
+				InputStream file = openResource(classLoader.getResource(path));
+				return file != null ? file : classLoader.getResourceAsStream(path);
+			}
+		};
+	}
+
+	//reads bytes one by one, so nothing past the given length is consumed.
+	private static String read(InputStream in, int length) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int b; out.size() < length && (b = in.read()) != -1; ) {
+			out.write(b);
+		}
+		return out.toString("UTF-8");
+	}
+
+	private static String readAll(InputStream in) throws IOException {
+		try {
+			return read(in, Integer.MAX_VALUE);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String repeat(String text, int times) {
+		StringBuilder out = new StringBuilder(text.length() * times);
+		for (int i = 0; i < times; i++) {
+			out.append(text);
+		}
+		return out.toString();
+	}
+
+	@Test
+	public void listsAndOpensEntriesOfJar() throws Exception {
+		File jar = createJar(true, METHOD, "method output", OTHER, "other output", "expected/Other/method.txt", "");
+		ClassPathResourceReader reader = reader(new URLClassLoader(new URL[]{jar.toURI().toURL()}, null), null);
+
+		assertEquals(new TreeSet<String>(Arrays.asList("method.txt", "other.txt")), reader.listResourcesUnder("expected/Test"));
+		assertEquals(new TreeSet<String>(Arrays.asList("Other", "Test")), reader.listResourcesUnder("expected/"));
+		assertEquals("method output", readAll(reader.open(METHOD)));
+		assertEquals("other output", readAll(reader.open(OTHER)));
+	}
+
+	@Test
+	public void listsEntriesOfJarWithoutDirectoryEntries() throws Exception {
+		File jar = createJar(false, METHOD, "method output", OTHER, "other output");
+		ClassLoader classLoader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null);
+		Class<?> marker = classLoader.loadClass(Marker.class.getName());
+
+		//the class loader finds no directories in the jar.
+		assertTrue(reader(classLoader, null).listResourcesUnder("expected/Test").isEmpty());
+
+		ClassPathResourceReader reader = reader(classLoader, marker);
+		assertEquals(new TreeSet<String>(Arrays.asList("method.txt", "other.txt")), reader.listResourcesUnder("expected/Test"));
+		assertEquals("method output", readAll(reader.open(METHOD)));
+		assertNull(reader.open("expected/Test/missing.txt"));
+	}
+
+	@Test
+	public void keepsStreamsReadableAfterIndexIsReplaced() throws Exception {
+		String original = repeat("original output\n", 10000);
+		File jar = createJar(true, METHOD, original);
+		JarIndex index = JarIndex.of(entry(jar, METHOD));
+
+		InputStream in = index.open(METHOD);
+		try {
+			assertEquals(original.substring(0, 100), read(in, 100));
+
+			replaceJar(jar, METHOD, "updated output", OTHER, "other output");
+			JarIndex updated = JarIndex.of(entry(jar, METHOD));
+			assertNotSame(index, updated);
+			assertEquals(new TreeSet<String>(Arrays.asList("method.txt", "other.txt")), updated.list("expected/Test"));
+			assertEquals("updated output", readAll(updated.open(METHOD)));
+
+			assertEquals(original.substring(100), read(in, Integer.MAX_VALUE));
+		} finally {
+			in.close();
+		}
+
+		//entries requested from the replaced index come from the current jar.
+		assertTrue(index.isClosed());
+		assertEquals("other output", readAll(index.open(OTHER)));
+	}
+
+	@Test
+	public void closesJarOnceLastStreamIsClosed() throws Exception {
+		File jar = createJar(true, METHOD, "method output", OTHER, "other output");
+		JarIndex index = JarIndex.of(entry(jar, METHOD));
+
+		InputStream method = index.open(METHOD);
+		InputStream other = index.open(OTHER);
+		assertNull(index.open("expected/Test/missing.txt"));
+		readAll(method);
+		//closing a stream again doesn't release the jar twice.
+		method.close();
+		assertFalse(index.isClosed());
+
+		replaceJar(jar, METHOD, "updated output");
+		assertNotSame(index, JarIndex.of(entry(jar, METHOD)));
+		assertFalse(index.isClosed());
+
+		assertEquals("other output", read(other, Integer.MAX_VALUE));
+		assertFalse(index.isClosed());
+		other.close();
+		assertTrue(index.isClosed());
+	}
+
+	@Test
+	public void closesUnusedJarWhenIndexIsReplaced() throws Exception {
+		File jar = createJar(true, METHOD, "method output");
+		JarIndex index = JarIndex.of(entry(jar, METHOD));
+		assertSame(index, JarIndex.of(entry(jar, METHOD)));
+		assertFalse(index.isClosed());
+
+		replaceJar(jar, METHOD, "updated output");
+		JarIndex updated = JarIndex.of(entry(jar, METHOD));
+		assertNotSame(index, updated);
+		assertTrue(index.isClosed());
+		assertFalse(updated.isClosed());
+	}
+}
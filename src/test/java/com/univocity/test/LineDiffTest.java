@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public class LineDiffTest {
+
+	private static int lcs(int[] a, int[] b) {
+		int[][] lengths = new int[a.length + 1][b.length + 1];
+		for (int i = a.length - 1; i >= 0; i--) {
+			for (int j = b.length - 1; j >= 0; j--) {
+				lengths[i][j] = a[i] == b[j] ? lengths[i + 1][j + 1] + 1 : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+			}
+		}
+		return lengths[0][0];
+	}
+
+	private static int[] random(Random random, int maxLength, int alphabet) {
+		int[] lines = new int[random.nextInt(maxLength + 1)];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = random.nextInt(alphabet);
+		}
+		return lines;
+	}
+
+	/**
+	 * Applies the edits to the original sequence and checks the result is the modified sequence.
+	 *
+	 * @return the number of lines deleted plus inserted.
+	 */
+	private static int apply(LineDiff diff, int[] a, int[] b) {
+		List<Integer> result = new ArrayList<Integer>();
+		int position = 0;
+		int distance = 0;
+		for (int e = 0; e < diff.getEditCount(); e++) {
+			assertTrue(diff.getStartA(e) >= position);
+			if (e > 0) {
+				assertFalse("edits must not be adjacent", diff.getStartA(e) == diff.getEndA(e - 1) && diff.getStartB(e) == diff.getEndB(e - 1));
+			}
+			for (; position < diff.getStartA(e); position++) {
+				result.add(a[position]);
+			}
+			assertEquals(result.size(), diff.getStartB(e));
+			for (int i = diff.getStartB(e); i < diff.getEndB(e); i++) {
+				result.add(b[i]);
+			}
+			distance += diff.getEndA(e) - diff.getStartA(e) + diff.getEndB(e) - diff.getStartB(e);
+			position = diff.getEndA(e);
+		}
+		for (; position < a.length; position++) {
+			result.add(a[position]);
+		}
+		assertEquals(b.length, result.size());
+		for (int i = 0; i < b.length; i++) {
+			assertEquals(b[i], result.get(i).intValue());
+		}
+		return distance;
+	}
+
+	@Test
+	public void computesMinimalEditScript() {
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			int[] a = random(random, 40, 1 + i % 6);
+			int[] b = random(random, 40, 1 + i % 6);
+			LineDiff diff = new LineDiff(a, b);
+			assertTrue(diff.compute());
+			assertEquals(a.length + b.length - 2 * lcs(a, b), apply(diff, a, b));
+		}
+	}
+
+	@Test
+	public void reportsNoEditsForEqualSequences() {
+		LineDiff diff = new LineDiff(new int[]{1, 2, 3}, new int[]{1, 2, 3});
+		assertTrue(diff.compute());
+		assertEquals(0, diff.getEditCount());
+	}
+
+	@Test
+	public void givesUpWhenWorkExceedsLimit() {
+		//edit distance below MAX_EDIT_DISTANCE, but no lines in common: too many comparisons to find the middle snake.
+		int[] a = new int[8100];
+		int[] b = new int[8100];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = i;
+			b[i] = -i - 1;
+		}
+		LineDiff diff = new LineDiff(a, b);
+		assertFalse(diff.compute());
+		assertEquals(0, diff.getEditCount());
+	}
+
+	@Test
+	public void addsChangesOfLinesWithCollidingHashes() {
+		LineDiff diff = new LineDiff(new int[]{1, 2, 3, 4, 5}, new int[]{1, 2, 3, 4, 5});
+		assertTrue(diff.compute());
+		diff.addChanges(new int[]{1, 3}, new int[]{1, 3}, 2);
+
+		assertEquals(2, diff.getEditCount());
+		assertEdit(diff, 0, 1, 2, 1, 2);
+		assertEdit(diff, 1, 3, 4, 3, 4);
+	}
+
+	@Test
+	public void mergesChangesWithAdjacentEdits() {
+		LineDiff diff = new LineDiff(new int[]{1, 2, 3, 4, 5}, new int[]{1, 9, 3, 4, 5});
+		assertTrue(diff.compute());
+		assertEquals(1, diff.getEditCount());
+		diff.addChanges(new int[]{0, 2, 4}, new int[]{0, 2, 4}, 3);
+
+		assertEquals(2, diff.getEditCount());
+		assertEdit(diff, 0, 0, 3, 0, 3);
+		assertEdit(diff, 1, 4, 5, 4, 5);
+	}
+
+	private static void assertEdit(LineDiff diff, int edit, int startA, int endA, int startB, int endB) {
+		assertEquals(startA, diff.getStartA(edit));
+		assertEquals(endA, diff.getEndA(edit));
+		assertEquals(startB, diff.getStartB(edit));
+		assertEquals(endB, diff.getEndB(edit));
+	}
+}
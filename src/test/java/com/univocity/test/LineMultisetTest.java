@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public class LineMultisetTest {
+
+	private static LineMultiset count(String expected, String produced) throws IOException {
+		LineMultiset lines = new LineMultiset();
+		lines.addExpected(new StringReader(expected));
+		lines.removeProduced(new StringReader(produced));
+		return lines;
+	}
+
+	@Test
+	public void matchesReorderedLines() throws IOException {
+		assertTrue(count("a\nb\nc", "c\na\nb").isMatch());
+	}
+
+	@Test
+	public void countsDuplicateLines() throws IOException {
+		assertTrue(count("a\nb\na\na", "a\na\nb\na").isMatch());
+		assertFalse(count("a\nb\na\na", "a\nb\nb\na").isMatch());
+		assertFalse(count("a\nb", "a\nb\nb").isMatch());
+	}
+
+	@Test
+	public void comparesContentOfLinesWithSameHash() throws IOException {
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		assertTrue(count("Aa\nBB\nAa", "Aa\nAa\nBB").isMatch());
+		assertFalse(count("Aa\nAa", "BB\nAa").isMatch());
+		assertFalse(count("AaAa\nBBBB", "AaBB\nBBAa").isMatch());
+	}
+
+	@Test
+	public void storesLinesLongerThanBlock() throws IOException {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < LineMultiset.BLOCK_SIZE + 10; i++) {
+			line.append((char) ('a' + i % 26));
+		}
+		assertTrue(count("x\n" + line + "\ny\n" + line, line + "\ny\n" + line + "\nx").isMatch());
+		assertFalse(count(line + "\nx", line + "a\nx").isMatch());
+	}
+
+	@Test
+	public void describesMissingAndUnexpectedLines() throws IOException {
+		LineMultiset lines = count("a\nb\nc\nb\nd", "d\nx\na\nx\ny");
+		assertFalse(lines.isMatch());
+		assertEquals("Outputs do not match ignoring the order of lines: 3 expected line(s) not found in the produced output, 3 unexpected line(s) in the produced output."
+				+ "\nMissing lines (expected output line numbers):"
+				+ "\n  2: b  (2 times)"
+				+ "\n  3: c"
+				+ "\nUnexpected lines (produced output line numbers):"
+				+ "\n  2: x  (2 times)"
+				+ "\n  5: y", lines.describeDifferences(10));
+	}
+
+	@Test
+	public void limitsDescribedLines() throws IOException {
+		String description = count("a\nb\nc", "x\ny\nz").describeDifferences(2);
+		assertTrue(description.endsWith("\nMissing lines (expected output line numbers):\n  1: a\n  2: b\n  ..."));
+	}
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.junit.*;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public class MismatchReportTest {
+
+	private static String report(String expected, String produced, int contextLines) throws IOException {
+		OutputComparator comparator = new OutputComparator(new StringReader(expected), new StringReader(produced), true);
+		assertFalse(comparator.compare());
+		MismatchReport report = new MismatchReport(comparator, true, contextLines, 50);
+		report.scan(new StringReader(expected), new StringReader(produced));
+		if (report.computeDiff()) {
+			report.verifyDiff(new StringReader(expected), new StringReader(produced));
+			report.render(new StringReader(expected), new StringReader(produced), null);
+		}
+		return report.getMessage(null);
+	}
+
+	private static String diffOf(String message) {
+		return message.substring(message.indexOf("\n@@"));
+	}
+
+	@Test
+	public void rendersLineDiff() throws IOException {
+		String message = report("a\nb\nc\nd\ne", "a\nb\nx\nd\ne\nf", 1);
+		assertTrue(message.startsWith("Outputs do not match at line 3"));
+		assertEquals("\n@@ -2,4 +2,5 @@\n b\n-c\n+x\n d\n e\n+f", diffOf(message));
+	}
+
+	@Test
+	public void rendersDifferentLinesWithSameHash() throws IOException {
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		String message = report("x\nAa\ny\nz\nAaBB", "x\nBB\ny\nz\nBBAa", 1);
+		assertEquals("\n@@ -1,5 +1,5 @@\n x\n-Aa\n+BB\n y\n z\n-AaBB\n+BBAa", diffOf(message));
+	}
+
+	@Test
+	public void showsWindowAroundFirstDifference() throws IOException {
+		String message = report("1\n2\n3\n4\n5", "1\n2\n3\n9\n5", 1);
+		assertTrue(message.contains("Expected output around line 4:\n  3: 3\n> 4: 4\n  5: 5"));
+		assertTrue(message.contains("Produced output around line 4:\n  3: 3\n> 4: 9\n  5: 5"));
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.junit.*;
+
+/**
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public class OutputThreadsTest extends OutputTester {
+
+	public OutputThreadsTest() {
+		super("expectedOutputs", "UTF-8");
+	}
+
+	private void printFromThread(final String content) throws InterruptedException {
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				println(content);
+			}
+		};
+		thread.start();
+		thread.join();
+	}
+
+	@Test
+	public void validatesOutputOfOtherThreads() throws InterruptedException {
+		println("test thread");
+		printFromThread("worker thread");
+		print("test thread again");
+		validate();
+	}
+
+	@Test
+	public void keepsOutputPerThread() throws InterruptedException {
+		setOutputPerThread(true);
+		try {
+			println("test thread");
+			printFromThread("worker thread");
+			print("test thread again");
+			validate();
+		} finally {
+			setOutputPerThread(false);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright 2017 Univocity Software Pty Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.univocity.test;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public class ResultNameIndexTest {
+
+	private static ResultNameIndex index(String... names) {
+		return new ResultNameIndex(Arrays.asList(names));
+	}
+
+	@Test
+	public void findsNameWithoutExtension() {
+		ResultNameIndex index = index("method.txt", "method", "other");
+		assertEquals("method", index.find("method", true));
+		assertEquals("method", index.find("method", false));
+		assertEquals("other", index.find("other", true));
+	}
+
+	@Test
+	public void findsNameWithExtension() {
+		ResultNameIndex index = index("method.txt", "other.csv.gz", "another.txt.gz");
+		assertEquals("method.txt", index.find("method", true));
+		assertEquals("method.txt", index.find("method", false));
+		assertEquals("other.csv.gz", index.find("other", true));
+		assertEquals("other.csv.gz", index.find("other", false));
+		assertEquals("another.txt.gz", index.find("another", true));
+		assertNull(index.find("missing", true));
+		assertNull(index.find("missing", false));
+	}
+
+	@Test
+	public void findsFirstNameInAlphabeticalOrder() {
+		assertEquals("method.csv", index("method.txt", "method.csv").find("method", true));
+		assertEquals("method.txt", index("method.txt.gz", "method.txt").find("method", true));
+		assertEquals("method.txt", index("method.txt.gz", "method.txt").find("method", false));
+	}
+
+	@Test
+	public void ignoresNamesOfOtherMethodsWithSamePrefix() {
+		ResultNameIndex index = index("method_x.txt", "method.txt", "methodX.txt", "method-y");
+		assertEquals("method.txt", index.find("method", true));
+		assertEquals("method.txt", index.find("method", false));
+		assertEquals("method_x.txt", index.find("method_x", true));
+		assertEquals("method_x.txt", index.find("method_x", false));
+		assertEquals("methodX.txt", index.find("methodX", true));
+		assertEquals("methodX.txt", index.find("methodx", false));
+
+		index = index("method_x.txt", "methodX.txt", "method-y");
+		assertNull(index.find("method", true));
+		assertNull(index.find("method", false));
+	}
+
+	@Test
+	public void matchesCaseOfNamesIfCaseSensitive() {
+		ResultNameIndex index = index("Method.txt", "OTHER", "another.TXT");
+		assertNull(index.find("method", true));
+		assertNull(index.find("other", true));
+		assertEquals("another.TXT", index.find("another", true));
+		assertNull(index.find("Another", true));
+	}
+
+	@Test
+	public void foldsCaseOfNamesIfCaseInsensitive() {
+		ResultNameIndex index = index("Method.txt", "OTHER", "another.TXT");
+		assertEquals("Method.txt", index.find("method", false));
+		assertEquals("OTHER", index.find("other", false));
+		assertEquals("another.TXT", index.find("Another", false));
+	}
+
+	@Test
+	public void prefersNameWithSameCase() {
+		ResultNameIndex index = index("METHOD", "method.txt", "Method.csv", "other.txt", "OTHER.csv");
+		assertEquals("method.txt", index.find("method", true));
+		assertEquals("METHOD", index.find("method", false));
+		assertEquals("METHOD", index.find("METHOD", true));
+
+		//without a name equal to the test method, names with extension in any case are tied.
+		assertEquals("other.txt", index.find("other", true));
+		assertEquals("OTHER.csv", index.find("other", false));
+		assertEquals("OTHER.csv", index.find("OTHER", true));
+	}
+
+	@Test
+	public void ignoresDigests() {
+		ResultNameIndex index = index("method" + OutputDigest.EXTENSION);
+		assertTrue(index.isEmpty());
+		assertNull(index.find("method", true));
+		assertNull(index.find("method", false));
+
+		index = index("method" + OutputDigest.EXTENSION, "method.txt");
+		assertFalse(index.isEmpty());
+		assertEquals("method.txt", index.find("method", true));
+	}
+}